@@ -0,0 +1,95 @@
+package shop.fx.shop;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// DatabaseManager reads and writes against generated catalogs of 1k, 100k and 1M products.
+// Every fork works on its own copy of the catalog, so addProduct does not leak into other runs.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CatalogBenchmark {
+    private static final int QUERIES = 64;
+
+    @Param({"1000", "100000", "1000000"})
+    int rows;
+
+    @Param({"200"})
+    int descriptionLength;
+
+    // Width in pixels of stored product images; 0 stores none (listings and searches never read them)
+    @Param({"0"})
+    int imageWidth;
+
+    // Width in pixels of the image of each product addProduct stores
+    @Param({"800"})
+    int addedImageWidth;
+
+    private Path file;
+    private DatabaseManager db;
+    private CatalogGenerator generator;
+    private String[] commonQueries;
+    private String[] rareQueries;
+    private int nextQuery;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        file = CatalogGenerator.copyOfCatalog(rows, descriptionLength, imageWidth);
+        db = new DatabaseManager(CatalogGenerator.url(file));
+        generator = new CatalogGenerator(7, descriptionLength, addedImageWidth);
+        // Broad queries (a common word, alone or as a prefix) and selective ones (one or two rare words)
+        commonQueries = new String[QUERIES];
+        rareQueries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            String common = CatalogGenerator.COMMON_WORDS[i % CatalogGenerator.COMMON_WORDS.length];
+            commonQueries[i] = i % 2 == 0 ? common : common.substring(0, 3);
+            rareQueries[i] = i % 2 == 0 ? generator.rareWord() : generator.rareWord() + " " + generator.rareWord();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        db.closeConnection();
+        CatalogGenerator.deleteDatabase(file);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Product> getAllProducts() throws SQLException {
+        return db.getAllProducts();
+    }
+
+    @Benchmark
+    public List<Product> searchProductsCommon() throws SQLException {
+        return db.searchProducts(commonQueries[nextQuery++ % QUERIES]);
+    }
+
+    @Benchmark
+    public List<Product> searchProductsRare() throws SQLException {
+        return db.searchProducts(rareQueries[nextQuery++ % QUERIES]);
+    }
+
+    @Benchmark
+    public Product addProduct() throws SQLException {
+        Product product = generator.next();
+        db.addProduct(product);
+        return product;
+    }
+}
@@ -0,0 +1,152 @@
+package shop.fx.shop;
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Synthetic, reproducible catalogs for the benchmarks: the same seed and sizes always give the same rows.
+// Names and descriptions are drawn from a fixed vocabulary with a skewed distribution, like real text:
+// a few dozen common words appear in a large share of products, thousands of rare words in a few each.
+// Images are JPEGs of random shapes, cycled from a small set so generating them does not dominate setup.
+class CatalogGenerator {
+    static final int SELLERS = 200;
+    private static final int DISTINCT_IMAGES = 16;
+    private static final int RARE_WORDS = 5000;
+    private static final String[] SYLLABLES = {"ka", "lo", "mi", "zen", "tor", "vu", "ra", "bel", "qui", "sto", "dex", "an"};
+    // Most common words, first in the vocabulary
+    static final String[] COMMON_WORDS = {
+            "phone", "laptop", "camera", "wireless", "bluetooth", "charger", "cable", "stand", "case", "screen",
+            "keyboard", "mouse", "monitor", "speaker", "headphones", "battery", "portable", "smart", "watch", "tablet",
+            "gaming", "office", "kitchen", "garden", "outdoor", "travel", "leather", "steel", "cotton", "wooden",
+            "black", "white", "silver", "blue", "red", "green", "compact", "premium", "classic", "ultra",
+            "light", "heavy", "fast", "quiet", "waterproof", "foldable", "adjustable", "rechargeable", "digital", "analog"
+    };
+
+    // COMMON_WORDS followed by RARE_WORDS made-up words, the same for every seed
+    static final String[] VOCABULARY = vocabulary();
+
+    private final Random random;
+    private final int descriptionLength;
+    private final List<byte[]> images = new ArrayList<>();
+
+    // imageWidth is the width in pixels of the product images (height is 3/4 of it); 0 for no images
+    CatalogGenerator(long seed, int descriptionLength, int imageWidth) {
+        this.random = new Random(seed);
+        this.descriptionLength = descriptionLength;
+        for (int i = 0; i < DISTINCT_IMAGES && imageWidth > 0; i++) {
+            images.add(jpeg(imageWidth, imageWidth * 3 / 4));
+        }
+    }
+
+    // A scratch copy of a generated catalog. Each catalog is generated once per size and kept in the temp
+    // directory, so forks and later runs only pay for a file copy. Delete the copy with deleteDatabase.
+    static Path copyOfCatalog(int rows, int descriptionLength, int imageWidth) throws IOException, SQLException {
+        Path dir = Files.createDirectories(Path.of(System.getProperty("java.io.tmpdir"), "shop-bench-catalogs"));
+        Path catalog = dir.resolve("catalog-" + rows + "-" + descriptionLength + "-" + imageWidth + ".db");
+        if (!Files.exists(catalog)) {
+            Path generated = Files.createTempFile(dir, "generating", ".db");
+            generate(generated, rows, descriptionLength, imageWidth);
+            Files.move(generated, catalog, StandardCopyOption.ATOMIC_MOVE);
+        }
+        Path copy = Files.createTempFile("shop-bench", ".db");
+        Files.copy(catalog, copy, StandardCopyOption.REPLACE_EXISTING);
+        return copy;
+    }
+
+    private static void generate(Path file, int rows, int descriptionLength, int imageWidth) throws SQLException {
+        DatabaseManager db = new DatabaseManager(url(file));
+        try {
+            CatalogGenerator generator = new CatalogGenerator(42, descriptionLength, imageWidth);
+            List<Product> chunk = new ArrayList<>(DatabaseManager.IMPORT_CHUNK_SIZE);
+            for (int i = 0; i < rows; i++) {
+                chunk.add(generator.next());
+                if (chunk.size() == DatabaseManager.IMPORT_CHUNK_SIZE || i == rows - 1) {
+                    db.importProducts(chunk);
+                    chunk.clear();
+                }
+            }
+        } finally {
+            db.closeConnection(); // Checkpoints the WAL, so the file alone holds the catalog
+        }
+    }
+
+    static String url(Path file) {
+        return "jdbc:sqlite:" + file;
+    }
+
+    // Remove a database copy, including its WAL files
+    static void deleteDatabase(Path file) throws IOException {
+        for (String suffix : new String[]{"", "-wal", "-shm"}) {
+            Files.deleteIfExists(Path.of(file + suffix));
+        }
+    }
+
+    Product next() {
+        String name = word() + " " + word() + " " + random.nextInt(10_000);
+        double price = random.nextInt(100_000) / 100.0;
+        String seller = "Seller " + random.nextInt(SELLERS);
+        byte[] image = images.isEmpty() ? null : images.get(random.nextInt(images.size()));
+        return new Product(0, name, description(), price, seller, image, image != null);
+    }
+
+    // A vocabulary word; cubing the uniform draw makes low indexes (the common words) far more likely
+    String word() {
+        double skewed = Math.pow(random.nextDouble(), 3);
+        return VOCABULARY[(int) (skewed * VOCABULARY.length)];
+    }
+
+    // A word from the rare part of the vocabulary, drawn uniformly
+    String rareWord() {
+        return VOCABULARY[COMMON_WORDS.length + random.nextInt(RARE_WORDS)];
+    }
+
+    private static String[] vocabulary() {
+        String[] words = new String[COMMON_WORDS.length + RARE_WORDS];
+        System.arraycopy(COMMON_WORDS, 0, words, 0, COMMON_WORDS.length);
+        for (int i = 0; i < RARE_WORDS; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int n = i + SYLLABLES.length; n > 0; n /= SYLLABLES.length) {
+                word.append(SYLLABLES[n % SYLLABLES.length]);
+            }
+            words[COMMON_WORDS.length + i] = word.toString();
+        }
+        return words;
+    }
+
+    private String description() {
+        StringBuilder description = new StringBuilder(descriptionLength + 16);
+        while (description.length() < descriptionLength) {
+            if (!description.isEmpty()) description.append(' ');
+            description.append(word());
+        }
+        description.setLength(descriptionLength);
+        return description.toString();
+    }
+
+    private byte[] jpeg(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        for (int i = 0; i < 40; i++) {
+            g.setColor(new Color(random.nextInt(0x1000000)));
+            g.fillOval(random.nextInt(width), random.nextInt(height), 1 + random.nextInt(width / 2 + 1), 1 + random.nextInt(height / 2 + 1));
+        }
+        g.dispose();
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(image, "jpg", out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package shop.fx.shop;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Checkout throughput with 1, 8 and 64 concurrent buyers against a scratch SQLite file.
+// Every buyer places the same number of orders of 1 to 5 lines through DatabaseManager.checkout.
+// Usage: CheckoutBenchmark [ordersPerRound]
+class CheckoutBenchmark {
+    private static final int[] BUYERS = {1, 8, 64};
+    private static final int PRODUCTS = 1000;
+    private static final int MAX_LINES = 5;
+
+    public static void main(String[] args) throws Exception {
+        int orders = args.length > 0 ? Integer.parseInt(args[0]) : 6400;
+        Path file = Files.createTempFile("checkout-bench", ".db");
+        DatabaseManager db = new DatabaseManager("jdbc:sqlite:" + file);
+        try {
+            int userId = populate(db);
+            System.out.printf("%,d orders per round, %,d products%n", orders, PRODUCTS);
+            run(db, userId, BUYERS[BUYERS.length - 1], orders); // Warm-up
+            for (int buyers : BUYERS) {
+                long elapsed = run(db, userId, buyers, orders);
+                System.out.printf("%3d buyers: %,9.0f orders/s, %8.3f ms per order per buyer%n", buyers,
+                        orders * 1e9 / elapsed, elapsed / 1e6 / (orders / (double) buyers));
+            }
+        } finally {
+            db.closeConnection();
+            for (String suffix : new String[]{"", "-wal", "-shm"}) {
+                Files.deleteIfExists(Path.of(file + suffix));
+            }
+        }
+    }
+
+    private static int populate(DatabaseManager db) throws SQLException {
+        List<Product> products = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < PRODUCTS; i++) {
+            products.add(new Product("Product " + i, "Description " + i, random.nextInt(100_000) / 100.0, "Seller " + i % 50, null));
+        }
+        db.importProducts(products);
+        db.addUser(new User("buyer", "buyer@example.com", "User"), "buyer");
+        return db.authenticate("buyer", "buyer").user().getId();
+    }
+
+    // Nanoseconds for buyers threads to place orders orders between them
+    private static long run(DatabaseManager db, int userId, int buyers, int orders) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(buyers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int b = 0; b < buyers; b++) {
+                Random random = new Random(b);
+                int count = orders / buyers;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < count; i++) {
+                        db.checkout(userId, randomOrder(random));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return System.nanoTime() - start;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static List<DatabaseManager.OrderLine> randomOrder(Random random) {
+        int lines = 1 + random.nextInt(MAX_LINES);
+        List<DatabaseManager.OrderLine> order = new ArrayList<>(lines);
+        int productId = 1 + random.nextInt(PRODUCTS - MAX_LINES);
+        for (int i = 0; i < lines; i++) {
+            order.add(new DatabaseManager.OrderLine(productId + i, 1 + random.nextInt(3), 9.99));
+        }
+        return order;
+    }
+}
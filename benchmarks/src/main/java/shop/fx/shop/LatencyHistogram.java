@@ -0,0 +1,96 @@
+package shop.fx.shop;
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+// Latency histogram in the style of HdrHistogram: values below 128 get a bucket each, and every power of two
+// above that is split into 64 linear buckets, so any recorded value is known to within 1/64 (about 1.6%)
+// whatever its size. Fixed memory, lock-free recording from any number of threads.
+class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF = SUB_BUCKETS / 2;
+    private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - 1 - SUB_BUCKET_BITS) * HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    // Record one value (nanoseconds for the load driver); negative values count as 0
+    void record(long value) {
+        value = Math.max(value, 0);
+        counts.incrementAndGet(index(value));
+        max.accumulate(value);
+    }
+
+    long count() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    long max() {
+        return max.get();
+    }
+
+    // Smallest recorded value such that percentile percent of the values are at or below it,
+    // reported as the top of its bucket like HdrHistogram does
+    long valueAtPercentile(double percentile) {
+        long total = count();
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestInBucket(i), max());
+            }
+        }
+        return max();
+    }
+
+    // Percentile distribution as HdrHistogram prints it: value, percentile, count at or below, 1/(1-percentile)
+    void printDistribution(PrintStream out, double unit) {
+        long total = count();
+        out.printf("%12s %14s %10s %14s%n", "Value", "Percentile", "TotalCount", "1/(1-Percentile)");
+        long seen = 0;
+        double nextPercentile = 0;
+        for (int i = 0; i < BUCKETS && seen < total; i++) {
+            long inBucket = counts.get(i);
+            if (inBucket == 0) {
+                continue;
+            }
+            seen += inBucket;
+            double percentile = 100.0 * seen / total;
+            // Halve the remaining distance to 100% between lines, as HdrHistogram's ticks do
+            if (percentile >= nextPercentile || seen == total) {
+                out.printf("%12.3f %14.6f %10d %14.2f%n", Math.min(highestInBucket(i), max()) / unit,
+                        percentile / 100, seen, seen == total ? Double.POSITIVE_INFINITY : 100 / (100 - percentile));
+                nextPercentile = percentile + (100 - percentile) / 2;
+            }
+        }
+        out.printf("#[Max = %.3f, Total count = %d]%n", max() / unit, total);
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        // Shift that brings the value into [HALF, SUB_BUCKETS), keeping its top SUB_BUCKET_BITS bits
+        int highestBit = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int shift = highestBit - (SUB_BUCKET_BITS - 1);
+        return SUB_BUCKETS + (shift - 1) * HALF + (int) (value >>> shift) - HALF;
+    }
+
+    private static long highestInBucket(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / HALF + 1;
+        long subBucket = (index - SUB_BUCKETS) % HALF + HALF;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,226 @@
+package shop.fx.shop;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Headless load test of DatabaseManager: N virtual users share one database file and each repeats a
+// shopper's session (login, browse a few pages, search, add to cart and check out), with every tenth
+// user an admin who also adds a product. Prints throughput, latency percentiles, SQLITE_BUSY and other
+// error counts per operation, and the latency distribution of each.
+// Users wait for each reply before the next step (closed loop), so latencies are those seen by users
+// at the rate the database sustains, not at a fixed arrival rate.
+// Usage: LoadDriver [users] [seconds] [rows] [thinkMillis]
+class LoadDriver {
+    private static final int WARMUP_SECONDS = 5;
+    private static final int PAGE_SIZE = 48;
+    private static final int MAX_PAGES = 3;
+    private static final int MAX_CART_LINES = 3;
+    private static final int ADMIN_EVERY = 10;
+    private static final int DESCRIPTION_LENGTH = 200;
+    private static final int ADDED_IMAGE_WIDTH = 400;
+    private static final int SQLITE_BUSY = 5;
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    enum Operation {LOGIN, BROWSE, SEARCH, CHECKOUT, ADD_PRODUCT}
+
+    private static final class Stats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder busy = new LongAdder();
+        final LongAdder errors = new LongAdder();
+    }
+
+    private interface Call<T> {
+        T run() throws SQLException;
+    }
+
+    private final DatabaseManager db;
+    private final int thinkMillis;
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+    private volatile boolean running = true;
+    private volatile boolean measuring;
+    private volatile String firstError;
+
+    private LoadDriver(DatabaseManager db, int thinkMillis) {
+        this.db = db;
+        this.thinkMillis = thinkMillis;
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        int rows = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+        int thinkMillis = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+
+        Path file = CatalogGenerator.copyOfCatalog(rows, DESCRIPTION_LENGTH, 0);
+        DatabaseManager db = new DatabaseManager(CatalogGenerator.url(file));
+        try {
+            for (int i = 0; i < users; i++) {
+                String role = i % ADMIN_EVERY == 0 ? Session.ADMIN_ROLE : "User";
+                db.addUser(new User(username(i), username(i) + "@example.com", role), password(i));
+            }
+            System.out.printf("%d virtual users, %,d products, %d s after %d s warm-up, %d ms think time%n",
+                    users, rows, seconds, WARMUP_SECONDS, thinkMillis);
+            new LoadDriver(db, thinkMillis).run(users, seconds);
+        } finally {
+            db.closeConnection();
+            CatalogGenerator.deleteDatabase(file);
+        }
+    }
+
+    private void run(int users, int seconds) throws InterruptedException {
+        long elapsed;
+        try (ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("virtual-user-", 0).factory())) {
+            for (int i = 0; i < users; i++) {
+                int user = i;
+                executor.execute(() -> virtualUser(user));
+            }
+            TimeUnit.SECONDS.sleep(WARMUP_SECONDS);
+            measuring = true;
+            long start = System.nanoTime();
+            TimeUnit.SECONDS.sleep(seconds);
+            measuring = false;
+            elapsed = System.nanoTime() - start;
+            running = false;
+        }
+        report(elapsed);
+    }
+
+    // One user's sessions, repeated until the run ends
+    private void virtualUser(int user) {
+        Random random = new Random(user);
+        boolean admin = user % ADMIN_EVERY == 0;
+        CatalogGenerator generator = new CatalogGenerator(user, DESCRIPTION_LENGTH, admin ? ADDED_IMAGE_WIDTH : 0);
+        while (running) {
+            Session session = timed(Operation.LOGIN, () -> db.authenticate(username(user), password(user)));
+            if (session == null) {
+                continue;
+            }
+            think();
+
+            // Browse the newest products a few pages deep, as scrolling the catalog does
+            List<Product> seen = new ArrayList<>();
+            int cursor = DatabaseManager.FIRST_PAGE;
+            for (int page = 1 + random.nextInt(MAX_PAGES); page > 0; page--) {
+                int before = cursor;
+                List<Product> products = timed(Operation.BROWSE, () -> db.getProductsPage(before, PAGE_SIZE));
+                if (products == null || products.isEmpty()) {
+                    break;
+                }
+                seen.addAll(products);
+                cursor = products.getLast().getId();
+                think();
+            }
+
+            String query = generator.word();
+            List<Product> found = timed(Operation.SEARCH, () -> db.searchProducts(query));
+            if (found != null) {
+                seen.addAll(found);
+            }
+            think();
+
+            if (!seen.isEmpty()) {
+                List<DatabaseManager.OrderLine> order = new ArrayList<>();
+                for (int i = 1 + random.nextInt(MAX_CART_LINES); i > 0; i--) {
+                    Product product = seen.get(random.nextInt(seen.size()));
+                    order.add(new DatabaseManager.OrderLine(product.getId(), 1 + random.nextInt(2), product.getPrice()));
+                }
+                timed(Operation.CHECKOUT, () -> db.checkout(session.user().getId(), order));
+                think();
+            }
+
+            if (session.can(Session.Permission.ADD_PRODUCT)) {
+                Product product = generator.next();
+                timed(Operation.ADD_PRODUCT, () -> {
+                    db.addProduct(product);
+                    return product;
+                });
+                think();
+            }
+        }
+    }
+
+    // Run one operation, recording its latency if it succeeds and counting it if it fails.
+    // Returns null on failure, which ends that step of the session.
+    private <T> T timed(Operation operation, Call<T> call) {
+        Stats operationStats = stats.get(operation);
+        long start = System.nanoTime();
+        try {
+            T result = call.run();
+            if (measuring) {
+                operationStats.latency.record(System.nanoTime() - start);
+            }
+            return result;
+        } catch (SQLException e) {
+            if (measuring) {
+                (e.getErrorCode() == SQLITE_BUSY ? operationStats.busy : operationStats.errors).increment();
+            }
+            if (e.getErrorCode() != SQLITE_BUSY && firstError == null) {
+                firstError = operation + ": " + e.getMessage();
+            }
+        } catch (RuntimeException e) {
+            if (measuring) {
+                operationStats.errors.increment();
+            }
+            if (firstError == null) {
+                firstError = operation + ": " + e;
+            }
+        }
+        return null;
+    }
+
+    private void think() {
+        if (thinkMillis > 0) {
+            try {
+                Thread.sleep(ThreadLocalRandom.current().nextInt(thinkMillis + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+        }
+    }
+
+    private void report(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%n%-12s %10s %10s %9s %9s %9s %9s %8s %8s%n",
+                "operation", "count", "ops/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "busy", "errors");
+        long total = 0;
+        for (Operation operation : Operation.values()) {
+            Stats s = stats.get(operation);
+            LatencyHistogram latency = s.latency;
+            long count = latency.count();
+            total += count;
+            System.out.printf("%-12s %,10d %,10.0f %9.2f %9.2f %9.2f %9.2f %,8d %,8d%n", operation, count, count / seconds,
+                    latency.valueAtPercentile(50) / NANOS_PER_MILLI, latency.valueAtPercentile(99) / NANOS_PER_MILLI,
+                    latency.valueAtPercentile(99.9) / NANOS_PER_MILLI, latency.max() / NANOS_PER_MILLI,
+                    s.busy.sum(), s.errors.sum());
+        }
+        System.out.printf("%-12s %,10d %,10.0f%n", "all", total, total / seconds);
+        if (firstError != null) {
+            System.out.println("First error: " + firstError);
+        }
+        for (Operation operation : Operation.values()) {
+            System.out.printf("%n%s latency (ms)%n", operation);
+            stats.get(operation).latency.printDistribution(System.out, NANOS_PER_MILLI);
+        }
+    }
+
+    private static String username(int user) {
+        return "load-user-" + user;
+    }
+
+    private static String password(int user) {
+        return "password-" + user;
+    }
+}
@@ -0,0 +1,128 @@
+package shop.fx.shop;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Microbenchmark for turning product rows into Product objects.
+// "before" is the original mapping: SELECT *, columns looked up by label, and the image injected
+// through reflection on every row. "after" is DatabaseManager.readProduct over the listing columns,
+// with seller names taken from a dictionary by seller_id like DatabaseManager does.
+// Usage: ProductMappingBenchmark [rows] [imageBytes]
+class ProductMappingBenchmark {
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+    private static final int SELLERS = 200;
+    private static final String[] SELLER_NAMES = new String[SELLERS];
+
+    static {
+        for (int i = 0; i < SELLERS; i++) {
+            SELLER_NAMES[i] = "Seller " + i;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int imageBytes = args.length > 1 ? Integer.parseInt(args[1]) : 2048;
+        Path file = Files.createTempFile("mapping-bench", ".db");
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + file)) {
+            populate(conn, rows, imageBytes);
+            String before = "SELECT * FROM products";
+            String after = "SELECT " + DatabaseManager.LISTING_COLUMNS + " FROM products p";
+
+            System.out.printf("%,d rows, %,d byte images%n", rows, imageBytes);
+            report(conn, "before: reflective mapping of SELECT *", before, true, rows);
+            report(conn, "after:  readProduct over listing columns", after, false, rows);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void populate(Connection conn, int rows, int imageBytes) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            // seller is the name column the original mapping read; seller_id is the current one
+            stmt.execute("CREATE TABLE products (id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT NOT NULL, " +
+                    "description TEXT, price REAL NOT NULL, seller TEXT NOT NULL, image BLOB, seller_id INTEGER)");
+        }
+        Random random = new Random(42);
+        byte[] image = new byte[imageBytes];
+        random.nextBytes(image);
+        conn.setAutoCommit(false);
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT INTO products (name, description, price, seller, image, seller_id) VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                pstmt.setString(1, "Product " + i);
+                pstmt.setString(2, "Description of product " + i + " with a few more words in it");
+                pstmt.setDouble(3, random.nextInt(100_000) / 100.0);
+                int seller = random.nextInt(SELLERS);
+                pstmt.setString(4, SELLER_NAMES[seller]);
+                pstmt.setBytes(5, image);
+                pstmt.setInt(6, seller);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+        conn.commit();
+        conn.setAutoCommit(true);
+    }
+
+    // Time scanning the query without mapping, then with mapping; the difference is the mapping cost
+    private static void report(Connection conn, String label, String sql, boolean reflective, int rows) throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            scan(conn, sql);
+            map(conn, sql, reflective);
+        }
+        long scanBest = Long.MAX_VALUE;
+        long mapBest = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            scanBest = Math.min(scanBest, scan(conn, sql));
+            mapBest = Math.min(mapBest, map(conn, sql, reflective));
+        }
+        System.out.printf("%-42s total %7.1f ns/row, mapping %7.1f ns/row%n", label,
+                (double) mapBest / rows, (double) (mapBest - scanBest) / rows);
+    }
+
+    private static long scan(Connection conn, String sql) throws SQLException {
+        long start = System.nanoTime();
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                // Step through the rows only
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long map(Connection conn, String sql, boolean reflective) throws Exception {
+        List<Product> products = new ArrayList<>();
+        long start = System.nanoTime();
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                products.add(reflective ? mapReflective(rs) : DatabaseManager.readProduct(rs, SELLER_NAMES[rs.getInt(5)]));
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (products.isEmpty()) {
+            throw new IllegalStateException("No rows mapped");
+        }
+        return elapsed;
+    }
+
+    // The mapping getAllProducts and searchProducts used before readProduct
+    private static Product mapReflective(ResultSet rs) throws Exception {
+        Product product = new Product(
+                rs.getString("name"),
+                rs.getString("description"),
+                rs.getDouble("price"),
+                rs.getString("seller"),
+                null
+        );
+        product.setId(rs.getInt("id"));
+        Field imageField = Product.class.getDeclaredField("image");
+        imageField.setAccessible(true);
+        imageField.set(product, rs.getBytes("image"));
+        return product;
+    }
+}
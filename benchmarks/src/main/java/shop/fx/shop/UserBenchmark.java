@@ -0,0 +1,58 @@
+package shop.fx.shop;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+// Sign-in cost: DatabaseManager.authenticate (user lookup, password hash, session) and the hash on its own
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class UserBenchmark {
+    private static final int USERS = 1000;
+
+    private Path file;
+    private DatabaseManager db;
+    private int nextUser;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        file = Files.createTempFile("shop-bench-users", ".db");
+        db = new DatabaseManager(CatalogGenerator.url(file));
+        for (int i = 0; i < USERS; i++) {
+            db.addUser(new User("user" + i, "user" + i + "@example.com", i % 10 == 0 ? "Admin" : "User"), "password" + i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        db.closeConnection();
+        CatalogGenerator.deleteDatabase(file);
+    }
+
+    @Benchmark
+    public Session authenticate() throws SQLException {
+        int user = nextUser++ % USERS;
+        return db.authenticate("user" + user, "password" + user);
+    }
+
+    @Benchmark
+    public String hashPassword() {
+        return DatabaseManager.hashPassword("password" + (nextUser++ % USERS));
+    }
+}
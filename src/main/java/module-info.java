@@ -2,6 +2,8 @@ module shop.fx.shop {
     requires javafx.fxml;
     requires org.kordamp.ikonli.javafx;
     requires java.desktop;
+    requires java.management;
+    requires java.logging;
     requires org.kordamp.ikonli.fontawesome;
     requires org.kordamp.ikonli.feather;
     requires atlantafx.base;
@@ -3,34 +3,26 @@ import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.image.Image;
 import javafx.scene.layout.VBox;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import java.io.File;
-import java.sql.SQLException;
 
 public class AddProductStage extends Stage {
-    private final DatabaseManager db;
-    private final User user;
+    private final AsyncDatabase db;
+    private final Session session;
     private final MarketplaceApp marketplaceApp;
 
-    public AddProductStage(DatabaseManager db, User user, Stage parent , MarketplaceApp marketplaceApp) {
+    public AddProductStage(AsyncDatabase db, Session session, Stage parent , MarketplaceApp marketplaceApp) {
         this.db = db;
-        this.user = user;
+        this.session = session;
         this.marketplaceApp = marketplaceApp;
         setTitle("Add New Product");
         setResizable(false);
-        this.getIcons().add(new Image(getClass().getResourceAsStream("store.png")));
+        this.getIcons().add(UiAssets.appIcon());
         // Check if user is admin
-        try {
-            if (!db.isAdmin(user.getId())) {
-                showAlert(Alert.AlertType.ERROR, "Access Denied", "Only administrators can add products.");
-                close();
-                return;
-            }
-        } catch (SQLException e) {
-            showAlert(Alert.AlertType.ERROR, "Database Error", e.getMessage());
+        if (!session.can(Session.Permission.ADD_PRODUCT)) {
+            showAlert(Alert.AlertType.ERROR, "Access Denied", "Only administrators can add products.");
             close();
             return;
         }
@@ -83,6 +75,7 @@ public class AddProductStage extends Stage {
         Button addButton = new Button("Add Product");
         addButton.getStyleClass().add("action-button");
         addButton.setOnAction(e -> handleAddProduct(
+                addButton,
                 nameField.getText(),
                 descriptionArea.getText(),
                 priceField.getText(),
@@ -102,13 +95,7 @@ public class AddProductStage extends Stage {
         );
 
         Scene scene = new Scene(root, 400, 500);
-        String cssPath = getClass().getResource("add-product-styles.css") != null ?
-                getClass().getResource("add-product-styles.css").toExternalForm() : null;
-        if (cssPath != null) {
-            scene.getStylesheets().add(cssPath);
-        } else {
-            System.err.println("Warning: add-product-styles.css not found");
-        }
+        UiAssets.addStylesheet(scene, "add-product-styles.css");
 
         setScene(scene);
         initOwner(parent);
@@ -116,7 +103,7 @@ public class AddProductStage extends Stage {
         setY(parent.getY() + (parent.getHeight() - 500) / 2);
     }
 
-    private void handleAddProduct(String name, String description, String price,String seller, File imageFile) {
+    private void handleAddProduct(Button addButton, String name, String description, String price,String seller, File imageFile) {
         // Validate inputs
         if (name.isEmpty()) {
             showAlert(Alert.AlertType.ERROR, "Error", "Product name is required.");
@@ -136,26 +123,24 @@ public class AddProductStage extends Stage {
         }
 
 
-        // Create product
-        try {
-
-            Product product = new Product(
-                    name,
-                    description.isEmpty() ? null : description,
-                    priceValue,
-                    seller,
-                    imageFile.getPath()
-            );
-
-            db.addProduct(product);
-            marketplaceApp.loadProducts();
-            showAlert(Alert.AlertType.INFORMATION, "Success", "Product added successfully!");
-            close();
-        } catch (SQLException e) {
-            showAlert(Alert.AlertType.ERROR, "Database Error", e.getMessage());
-        } catch (Exception e) {
-            showAlert(Alert.AlertType.ERROR, "Error", "Failed to read image file: " + e.getMessage());
+        if (imageFile == null) {
+            showAlert(Alert.AlertType.ERROR, "Error", "Product image is required.");
+            return;
         }
+
+        // Read the image and store the product in the background
+        addButton.setDisable(true);
+        db.addProduct(name, description.isEmpty() ? null : description, priceValue, seller, imageFile.getPath())
+                .whenComplete((_, failure) -> {
+                    addButton.setDisable(false);
+                    if (failure != null) {
+                        showAlert(Alert.AlertType.ERROR, "Database Error", AsyncDatabase.cause(failure).getMessage());
+                        return;
+                    }
+                    marketplaceApp.loadProducts();
+                    showAlert(Alert.AlertType.INFORMATION, "Success", "Product added successfully!");
+                    close();
+                });
     }
 
     private void showAlert(Alert.AlertType type, String title, String message) {
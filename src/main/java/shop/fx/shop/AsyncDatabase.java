@@ -0,0 +1,131 @@
+package shop.fx.shop;
+import javafx.application.Platform;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+// Non-blocking front of DatabaseManager for the UI. Every call runs on the application's executor and returns
+// a future that completes on the FX thread, so actions chained on it (whenComplete, thenAccept, ...) may
+// update the scene directly. A failed call completes the future with its SQLException; see cause(), and
+// calls made after the executor was shut down fail with "Database is closed".
+// Product listings and writes go through the CatalogCache so the cached catalog stays current.
+class AsyncDatabase {
+    // Blocking database work run on the executor
+    private interface Operation<T> {
+        T run() throws SQLException;
+    }
+
+    private final DatabaseManager db;
+    private final CatalogCache catalog;
+    // Owned by the caller, which shuts it down before closing the database; the connection pool bounds
+    // how many calls reach SQLite at once
+    private final Executor executor;
+
+    AsyncDatabase(DatabaseManager db, CatalogCache catalog, Executor executor) {
+        this.db = db;
+        this.catalog = catalog;
+        this.executor = executor;
+    }
+
+    CompletableFuture<Session> authenticate(String username, String password) {
+        return submit("Login", () -> db.authenticate(username, password));
+    }
+
+    CompletableFuture<Void> addUser(User user, String password) {
+        return submit("Sign up", () -> {
+            db.addUser(user, password);
+            return null;
+        });
+    }
+
+    CompletableFuture<Void> updateUser(int id, String username, String email, String role, String password) {
+        return submit("Save profile", () -> {
+            db.updateUser(id, username, email, role, password);
+            return null;
+        });
+    }
+
+    CompletableFuture<Void> removeUser(int id) {
+        return submit("Delete profile", () -> {
+            db.removeUser(id);
+            return null;
+        });
+    }
+
+    CompletableFuture<Boolean> hasDefaultPassword(int userId) {
+        return submit("Check default password", () -> db.hasDefaultPassword(userId));
+    }
+
+    // Create a product, reading its image file (if any) in the background too, and add it to the catalog
+    CompletableFuture<Product> addProduct(String name, String description, double price, String seller, String imagePath) {
+        return submit("Add product", () -> {
+            Product product = new Product(name, description, price, seller, imagePath);
+            catalog.addProduct(product);
+            return product;
+        });
+    }
+
+    CompletableFuture<Void> removeProduct(int productId) {
+        return submit("Remove product", () -> {
+            catalog.removeProduct(productId);
+            return null;
+        });
+    }
+
+    // A page of the newest products from the catalog cache, see CatalogCache.getPage
+    CompletableFuture<List<Product>> getPage(int beforeId, int limit) {
+        return submit("Load products", () -> catalog.getPage(beforeId, limit));
+    }
+
+    CompletableFuture<List<Product>> getFilteredProducts(ProductFilter filter, Product after, int limit) {
+        return submit("Load filtered products", () -> db.getFilteredProducts(filter, after, limit));
+    }
+
+    CompletableFuture<List<Product>> searchProducts(String query, ProductFilter filter, QueryHandle handle) {
+        return submit("Search", () -> db.searchProducts(query, filter, handle));
+    }
+
+    CompletableFuture<List<String>> getSellers() {
+        return submit("Load sellers", db::getSellers);
+    }
+
+    CompletableFuture<Integer> checkout(int userId, List<DatabaseManager.OrderLine> lines) {
+        return submit("Checkout", () -> db.checkout(userId, lines));
+    }
+
+    // Run operation on the executor and complete the returned future on the FX thread. The actions
+    // chained on the future run inside a watchdog marker named after the operation, so a slow
+    // callback shows up in stall reports as that operation.
+    private <T> CompletableFuture<T> submit(String name, Operation<T> operation) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    T value = operation.run();
+                    Platform.runLater(() -> {
+                        try (var _ = FxWatchdog.operation(name)) {
+                            result.complete(value);
+                        }
+                    });
+                } catch (Throwable e) {
+                    Platform.runLater(() -> {
+                        try (var _ = FxWatchdog.operation(name)) {
+                            result.completeExceptionally(e);
+                        }
+                    });
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new SQLException("Database is closed", e));
+        }
+        return result;
+    }
+
+    // The exception a call failed with, unwrapped from the CompletionException of chained futures
+    static Throwable cause(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+}
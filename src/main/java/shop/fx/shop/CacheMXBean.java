@@ -0,0 +1,20 @@
+package shop.fx.shop;
+
+// JMX view of one Metrics.Cache, registered as shop.fx.shop:type=Cache,name=<cache>.
+// Public because JMX only introspects public interfaces.
+public interface CacheMXBean {
+    long getHits();
+
+    long getMisses();
+
+    // Hits as a share of all lookups, 0 before the first lookup
+    double getHitRatio();
+
+    long getEvictions();
+
+    // Entries held now, or -1 if the cache does not count them
+    long getEntries();
+
+    // Estimated bytes held now, or -1 if the cache does not track its size
+    long getBytes();
+}
@@ -0,0 +1,91 @@
+package shop.fx.shop;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// A pooled connection with a bounded LRU cache of prepared statements keyed by SQL text,
+// so SQLite parses and plans each query once per connection instead of on every call.
+// Cached statements stay open: callers close their ResultSets but never the statements.
+// Only the thread that borrowed the connection from the pool may use it.
+class CachedConnection implements AutoCloseable {
+    private static final int MAX_STATEMENTS = 64;
+
+    private final Connection conn;
+    private final Map<String, PreparedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    CachedConnection(Connection conn) {
+        this.conn = conn;
+    }
+
+    // Get the cached statement for sql, preparing it on first use
+    PreparedStatement prepare(String sql) throws SQLException {
+        return prepare(sql, false);
+    }
+
+    // Same as prepare, for INSERTs whose generated keys are read back
+    PreparedStatement prepareInsert(String sql) throws SQLException {
+        return prepare(sql, true);
+    }
+
+    private PreparedStatement prepare(String sql, boolean returnKeys) throws SQLException {
+        String key = returnKeys ? "keys:" + sql : sql;
+        PreparedStatement pstmt = statements.get(key);
+        if (pstmt != null && !pstmt.isClosed()) {
+            hits.incrementAndGet();
+            return pstmt;
+        }
+        misses.incrementAndGet();
+        pstmt = returnKeys ? conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS) : conn.prepareStatement(sql);
+        statements.put(key, pstmt);
+        if (statements.size() > MAX_STATEMENTS) {
+            evictEldest();
+        }
+        return pstmt;
+    }
+
+    private void evictEldest() {
+        Iterator<PreparedStatement> eldest = statements.values().iterator();
+        PreparedStatement pstmt = eldest.next();
+        eldest.remove();
+        evictions.incrementAndGet();
+        try {
+            pstmt.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing evicted statement: " + e.getMessage());
+        }
+    }
+
+    // The underlying connection, for transaction control and one-off statements
+    Connection connection() {
+        return conn;
+    }
+
+    long hits() {
+        return hits.get();
+    }
+
+    long misses() {
+        return misses.get();
+    }
+
+    long evictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        for (PreparedStatement pstmt : statements.values()) {
+            pstmt.close();
+        }
+        statements.clear();
+        conn.close();
+    }
+}
@@ -0,0 +1,118 @@
+package shop.fx.shop;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import java.util.HashMap;
+import java.util.Map;
+
+// Shopping cart as one line per product with a quantity. Lines are found by product id, each line knows
+// its position in lines() so it can be removed without a search, and the total
+// is adjusted by each change instead of being summed again. Views observe lines() and the line
+// quantities, so they only redraw what changed. Used on the FX thread only.
+class Cart {
+    // One product in the cart; the quantity is observable so views update the line in place
+    static final class Line {
+        private final Product product;
+        private final ReadOnlyIntegerWrapper quantity = new ReadOnlyIntegerWrapper(1);
+        // Position in lines
+        private int index;
+
+        private Line(Product product) {
+            this.product = product;
+        }
+
+        Product product() {
+            return product;
+        }
+
+        int quantity() {
+            return quantity.get();
+        }
+
+        ReadOnlyIntegerProperty quantityProperty() {
+            return quantity.getReadOnlyProperty();
+        }
+    }
+
+    private final Map<Integer, Line> linesById = new HashMap<>();
+    private final ObservableList<Line> lines = FXCollections.observableArrayList();
+    private final ObservableList<Line> readOnlyLines = FXCollections.unmodifiableObservableList(lines);
+    // Kept in cents so adding and removing lines does not accumulate rounding errors
+    private long totalCents;
+    private final ReadOnlyDoubleWrapper total = new ReadOnlyDoubleWrapper();
+
+    ObservableList<Line> lines() {
+        return readOnlyLines;
+    }
+
+    ReadOnlyDoubleProperty totalProperty() {
+        return total.getReadOnlyProperty();
+    }
+
+    double total() {
+        return total.get();
+    }
+
+    boolean isEmpty() {
+        return lines.isEmpty();
+    }
+
+    // Add one unit of a product, starting a new line if it is not in the cart yet
+    void add(Product product) {
+        Line line = linesById.get(product.getId());
+        if (line == null) {
+            line = new Line(product);
+            line.index = lines.size();
+            linesById.put(product.getId(), line);
+            lines.add(line);
+        } else {
+            line.quantity.set(line.quantity.get() + 1);
+        }
+        addToTotal(product, 1);
+    }
+
+    // Remove a product's line whatever its quantity. The last line takes its place, so nothing is searched
+    // or shifted; the cart view shows that line in the removed line's position.
+    void remove(int productId) {
+        Line line = linesById.remove(productId);
+        if (line != null) {
+            Line last = lines.getLast();
+            if (last != line) {
+                last.index = line.index;
+                lines.set(line.index, last);
+            }
+            lines.removeLast();
+            addToTotal(line.product, -line.quantity());
+        }
+    }
+
+    // Take quantity units of a product out of the cart, e.g. the ones just ordered, dropping its line once
+    // none are left. Units added since stay in the cart.
+    void subtract(int productId, int quantity) {
+        Line line = linesById.get(productId);
+        if (line == null) {
+            return; // Removed while the order was placed
+        }
+        if (quantity >= line.quantity()) {
+            remove(productId);
+        } else {
+            line.quantity.set(line.quantity() - quantity);
+            addToTotal(line.product, -quantity);
+        }
+    }
+
+    void clear() {
+        linesById.clear();
+        lines.clear();
+        totalCents = 0;
+        total.set(0);
+    }
+
+    private void addToTotal(Product product, int quantity) {
+        totalCents += Math.round(product.getPrice() * 100) * quantity;
+        total.set(totalCents / 100.0);
+    }
+}
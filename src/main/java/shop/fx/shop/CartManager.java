@@ -3,17 +3,27 @@ import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.image.Image;
 import javafx.scene.layout.*;
 import javafx.stage.Stage;
 import org.kordamp.ikonli.javafx.FontIcon;
 import org.kordamp.ikonli.feather.Feather;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 
 // Manages the shopping cart functionality
 public class CartManager {
-    private List<Product> cart = new ArrayList<>();
+    private final AsyncDatabase db;
+    // Who is buying: the session of whoever is signed in when Buy is pressed
+    private final Supplier<Session> session;
+    private final Cart cart = new Cart();
+    // The cart window, created on first use and reused afterwards
+    private Stage cartStage;
+
+    CartManager(AsyncDatabase db, Supplier<Session> session) {
+        this.db = db;
+        this.session = session;
+    }
 
     // Add product to cart
     public void addToCart(Product product) {
@@ -23,36 +33,40 @@ public class CartManager {
 
     // Remove product from cart
     public void removeFromCart(Product product) {
-        cart.remove(product);
+        cart.remove(product.getId());
     }
 
     // Get the current cart
-    public List<Product> getCart() {
-        return new ArrayList<>(cart);
+    Cart getCart() {
+        return cart;
     }
 
     // Show cart stage
     public void showCartStage() {
-        Stage cartStage = new Stage();
-        cartStage.getIcons().add(new Image(getClass().getResourceAsStream("store.png")));
-        cartStage.setTitle("Shopping Cart");
-        cartStage.setMinWidth(600);
+        if (cartStage == null) {
+            cartStage = createCartStage();
+        }
+        cartStage.show();
+        cartStage.toFront();
+    }
+
+    // Build the cart window once; its list and total follow the cart from then on
+    private Stage createCartStage() {
+        Stage stage = new Stage();
+        stage.getIcons().add(UiAssets.appIcon());
+        stage.setTitle("Shopping Cart");
+        stage.setMinWidth(600);
 
         BorderPane cartRoot = new BorderPane();
         cartRoot.getStyleClass().add("root-pane");
         cartRoot.setPadding(new Insets(10));
 
-        VBox cartItemsPane = new VBox(10);
-        cartItemsPane.setPadding(new Insets(10));
-        cartItemsPane.getStyleClass().add("cart-items-pane");
-
-        for (Product product : cart) {
-            cartItemsPane.getChildren().add(createCartItemPane(product));
-        }
-
-        ScrollPane cartScrollPane = new ScrollPane(cartItemsPane);
-        cartScrollPane.setFitToWidth(true);
-        cartRoot.setCenter(cartScrollPane);
+        ListView<Cart.Line> cartItemsList = new ListView<>(cart.lines());
+        cartItemsList.getStyleClass().add("cart-items-pane");
+        cartItemsList.setFocusTraversable(false);
+        cartItemsList.setPlaceholder(new Label("Your cart is empty"));
+        cartItemsList.setCellFactory(_ -> new CartLineCell());
+        cartRoot.setCenter(cartItemsList);
 
         // Bottom HBox for Buy button and Total price
         HBox bottomBox = new HBox(10);
@@ -67,54 +81,102 @@ public class CartManager {
         buyIcon.getStyleClass().add("button-icon");
         buyButton.setGraphic(buyIcon);
         buyButton.getStyleClass().addAll("rounded-button", "buy-button");
-        buyButton.setOnAction(e -> showInfoAlert("Purchase", "Thank you for your purchase!"));
+        buyButton.setOnAction(e -> checkout(buyButton));
 
-        Label totalLabel = new Label(String.format("Total: $%.2f", cart.stream().mapToDouble(Product::getPrice).sum()));
+        Label totalLabel = new Label();
+        totalLabel.textProperty().bind(cart.totalProperty().asString("Total: $%.2f"));
         totalLabel.getStyleClass().add("cart-total");
 
         bottomBox.getChildren().addAll(spacer, totalLabel, buyButton);
         cartRoot.setBottom(bottomBox);
 
         Scene cartScene = new Scene(cartRoot, 600, 400);
-        String cssPath = CartManager.class.getResource("cart-styles.css") != null ?
-                CartManager.class.getResource("cart-styles.css").toExternalForm() : null;
-        if (cssPath != null) {
-            cartScene.getStylesheets().add(cssPath);
-        } else {
-            System.err.println("Warning: cart-styles.css not found");
-        }
-        cartStage.setScene(cartScene);
-        cartStage.show();
+        UiAssets.addStylesheet(cartScene, "cart-styles.css");
+        stage.setScene(cartScene);
+        return stage;
     }
 
-    // Create a pane for a cart item
-    private HBox createCartItemPane(Product product) {
-        HBox itemPane = new HBox(10);
-        itemPane.getStyleClass().add("cart-item");
-        itemPane.setAlignment(Pos.CENTER_LEFT);
-
-        Label nameLabel = new Label(product.getName());
-        nameLabel.getStyleClass().add("cart-item-name");
-
-        Region spacer = new Region();
-        HBox.setHgrow(spacer, Priority.ALWAYS);
-
-        Label priceLabel = new Label(String.format("$%.2f", product.getPrice()));
-        priceLabel.getStyleClass().add("cart-item-price");
-
-        Button removeButton = new Button();
-        FontIcon removeIcon = new FontIcon(Feather.TRASH_2);
-        removeIcon.getStyleClass().add("button-icon");
-        removeButton.setGraphic(removeIcon);
-        removeButton.getStyleClass().addAll("rounded-button", "remove-button");
-        removeButton.setOnAction(e -> {
-            removeFromCart(product);
-            showInfoAlert("Removed from Cart", product.getName() + " has been removed from your cart.");
-            showCartStage();
+    // Store the cart as an order in the background, then take the ordered lines out of it. Products added to
+    // the cart while the order is being placed stay in it.
+    private void checkout(Button buyButton) {
+        Session buyer = session.get();
+        if (cart.isEmpty() || buyer == null) {
+            showInfoAlert("Purchase", "Your cart is empty.");
+            return;
+        }
+        List<DatabaseManager.OrderLine> lines = new ArrayList<>(cart.lines().size());
+        for (Cart.Line line : cart.lines()) {
+            lines.add(new DatabaseManager.OrderLine(line.product().getId(), line.quantity(), line.product().getPrice()));
+        }
+        buyButton.setDisable(true);
+        db.checkout(buyer.user().getId(), lines).whenComplete((orderId, failure) -> {
+            buyButton.setDisable(false);
+            if (failure != null) {
+                Alert alert = new Alert(Alert.AlertType.ERROR);
+                alert.setTitle("Purchase");
+                alert.setHeaderText(null);
+                alert.setContentText("Could not place your order: " + AsyncDatabase.cause(failure).getMessage());
+                alert.showAndWait();
+                return;
+            }
+            for (DatabaseManager.OrderLine line : lines) {
+                cart.subtract(line.productId(), line.quantity());
+            }
+            showInfoAlert("Purchase", "Thank you for your purchase! Your order number is " + orderId + ".");
         });
+    }
 
-        itemPane.getChildren().addAll(nameLabel, spacer, priceLabel, removeButton);
-        return itemPane;
+    // A cart line; the nodes are built once and rebound when the cell shows another line
+    private class CartLineCell extends ListCell<Cart.Line> {
+        private final HBox itemPane = new HBox(10);
+        private final Label nameLabel = new Label();
+        private final Label quantityLabel = new Label();
+        private final Label priceLabel = new Label();
+        private Cart.Line line;
+
+        CartLineCell() {
+            getStyleClass().add("cart-line");
+            itemPane.getStyleClass().add("cart-item");
+            itemPane.setAlignment(Pos.CENTER_LEFT);
+
+            nameLabel.getStyleClass().add("cart-item-name");
+            quantityLabel.getStyleClass().add("cart-item-quantity");
+
+            Region spacer = new Region();
+            HBox.setHgrow(spacer, Priority.ALWAYS);
+
+            priceLabel.getStyleClass().add("cart-item-price");
+
+            Button removeButton = new Button();
+            FontIcon removeIcon = new FontIcon(Feather.TRASH_2);
+            removeIcon.getStyleClass().add("button-icon");
+            removeButton.setGraphic(removeIcon);
+            removeButton.getStyleClass().addAll("rounded-button", "remove-button");
+            removeButton.setOnAction(e -> {
+                if (line != null) {
+                    removeFromCart(line.product());
+                }
+            });
+
+            itemPane.getChildren().addAll(nameLabel, quantityLabel, spacer, priceLabel, removeButton);
+        }
+
+        @Override
+        protected void updateItem(Cart.Line item, boolean empty) {
+            super.updateItem(item, empty);
+            quantityLabel.textProperty().unbind();
+            priceLabel.textProperty().unbind();
+            line = empty ? null : item;
+            if (line == null) {
+                setGraphic(null);
+                return;
+            }
+            Product product = line.product();
+            nameLabel.setText(product.getName());
+            quantityLabel.textProperty().bind(line.quantityProperty().asString("\u00d7 %d"));
+            priceLabel.textProperty().bind(line.quantityProperty().multiply(product.getPrice()).asString("$%.2f"));
+            setGraphic(itemPane);
+        }
     }
 
     // Show info alert
@@ -0,0 +1,153 @@
+package shop.fx.shop;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Catalog cache in front of DatabaseManager. It holds an immutable, versioned snapshot of the product
+// summaries loaded so far (newest first, without image bytes). Readers take the current snapshot without
+// locking; pages the snapshot does not cover yet are read from the database once and merged in.
+// addProduct and removeProduct write through to the database and then publish a new version; a page read
+// before a write and merged after it cannot bring a removed product back or add a new one twice.
+// Callers that need the same missing rows at the same time share one query instead of each running it.
+class CatalogCache {
+    // Rows read per database round trip when the snapshot has to grow
+    private static final int LOAD_SIZE = 500;
+
+    // One version of the cached catalog. products is sorted by id, highest first;
+    // complete means it reaches the oldest product, so no page can be missing.
+    record Snapshot(long version, List<Product> products, boolean complete) {
+        // Index of the first product with an id below beforeId
+        int indexBelow(int beforeId) {
+            int low = 0;
+            int high = products.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (products.get(mid).getId() >= beforeId) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        Product find(int id) {
+            int index = indexBelow(id + 1);
+            return index < products.size() && products.get(index).getId() == id ? products.get(index) : null;
+        }
+    }
+
+    private final DatabaseManager db;
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(new Snapshot(0, List.of(), false));
+    // Loads in flight, by the id the snapshot ended at when they started
+    private final Map<Integer, CompletableFuture<Snapshot>> loading = new ConcurrentHashMap<>();
+    // Ids of removed products, left out of every later merge. Product ids are never reused, so this only
+    // grows with deletions made in this session.
+    private final Set<Integer> removed = ConcurrentHashMap.newKeySet();
+
+    CatalogCache(DatabaseManager db) {
+        this.db = db;
+    }
+
+    Snapshot snapshot() {
+        return current.get();
+    }
+
+    long version() {
+        return current.get().version();
+    }
+
+    // Get up to limit products with ids below beforeId, newest first (see DatabaseManager.getProductsPage)
+    List<Product> getPage(int beforeId, int limit) throws SQLException {
+        Snapshot snapshot = current.get();
+        int from = snapshot.indexBelow(beforeId);
+        while (from + limit > snapshot.products().size() && !snapshot.complete()) {
+            snapshot = loadMore(snapshot, from + limit - snapshot.products().size());
+            // The loaded version may also hold products added or removed since, which shift the position
+            from = snapshot.indexBelow(beforeId);
+        }
+        return snapshot.products().subList(from, Math.min(from + limit, snapshot.products().size()));
+    }
+
+    // Cached summary of a product, or null if it has not been loaded or was removed
+    Product get(int productId) {
+        return current.get().find(productId);
+    }
+
+    // Read the rows after the end of the snapshot and publish a version that includes them.
+    // If another caller is already reading from the same point, wait for its result instead.
+    private Snapshot loadMore(Snapshot snapshot, int needed) throws SQLException {
+        List<Product> products = snapshot.products();
+        int cursor = products.isEmpty() ? DatabaseManager.FIRST_PAGE : products.getLast().getId();
+        CompletableFuture<Snapshot> load = new CompletableFuture<>();
+        CompletableFuture<Snapshot> running = loading.putIfAbsent(cursor, load);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof SQLException sqlException) throw sqlException;
+                throw e;
+            }
+        }
+        try {
+            Snapshot loaded = readAfter(cursor, Math.max(needed, LOAD_SIZE));
+            load.complete(loaded);
+            return loaded;
+        } catch (SQLException | RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(cursor, load);
+        }
+    }
+
+    private Snapshot readAfter(int cursor, int limit) throws SQLException {
+        List<Product> page = db.getProductsPage(cursor, limit);
+        boolean complete = page.size() < limit;
+        return current.updateAndGet(latest -> {
+            // Another thread may have merged pages or written products meanwhile; append only what is still missing
+            List<Product> base = latest.products();
+            int tail = base.isEmpty() ? DatabaseManager.FIRST_PAGE : base.getLast().getId();
+            List<Product> merged = new ArrayList<>(base.size() + page.size());
+            merged.addAll(base);
+            for (Product product : page) {
+                if (product.getId() < tail && !removed.contains(product.getId())) merged.add(product);
+            }
+            return new Snapshot(latest.version() + 1, List.copyOf(merged), latest.complete() || complete);
+        });
+    }
+
+    // Store a new product and add its summary to the snapshot
+    void addProduct(Product product) throws SQLException {
+        db.addProduct(product);
+        Product summary = new Product(product.getId(), product.getName(), product.getDescription(),
+                product.getPrice(), product.getSeller(), null, product.hasImage());
+        current.updateAndGet(latest -> {
+            if (latest.find(summary.getId()) != null) {
+                return latest; // A page read after the insert already merged it
+            }
+            // Usually the newest id, so it goes first, unless a concurrent add finished before this one
+            List<Product> products = new ArrayList<>(latest.products());
+            products.add(latest.indexBelow(summary.getId()), summary);
+            return new Snapshot(latest.version() + 1, List.copyOf(products), latest.complete());
+        });
+    }
+
+    // Delete a product and drop it from the snapshot. The tombstone goes in before the snapshot update,
+    // so a page read before the delete and merged after it cannot add the product back.
+    void removeProduct(int productId) throws SQLException {
+        db.removeProduct(productId);
+        removed.add(productId);
+        current.updateAndGet(latest -> {
+            List<Product> products = new ArrayList<>(latest.products());
+            products.removeIf(product -> product.getId() == productId);
+            return new Snapshot(latest.version() + 1, List.copyOf(products), latest.complete());
+        });
+    }
+}
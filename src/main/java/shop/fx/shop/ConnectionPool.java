@@ -0,0 +1,153 @@
+package shop.fx.shop;
+import org.sqlite.SQLiteConfig;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Pool of SQLite connections in WAL mode: a single writer plus a fixed set of read-only readers.
+// WAL lets the readers run concurrently with each other and with the writer, so catalog reads never
+// queue behind an image insert; SQLite only allows one writer at a time, so writes are serialized here.
+class ConnectionPool implements AutoCloseable {
+    private static final int BUSY_TIMEOUT_MILLIS = 5000;
+    private static final long BORROW_TIMEOUT_SECONDS = 30;
+
+    // Work done with a borrowed connection
+    interface SqlWork<T> {
+        T run(CachedConnection conn) throws SQLException;
+    }
+
+    // Prepared statement cache counters summed over all pooled connections
+    record StatementCacheStats(long hits, long misses, long evictions) {
+    }
+
+    private final CachedConnection writer;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final List<CachedConnection> readers = new ArrayList<>();
+    private final BlockingQueue<CachedConnection> idleReaders;
+    private volatile boolean closed;
+
+    // Open the writer first so that initializer can create and migrate the schema before any reader opens
+    ConnectionPool(String url, int readerCount, SqlWork<Void> initializer) throws SQLException {
+        Connection writerConn = DriverManager.getConnection(url, config(false).toProperties());
+        writerConn.setAutoCommit(true);
+        writer = new CachedConnection(writerConn);
+        idleReaders = new ArrayBlockingQueue<>(readerCount);
+        try {
+            initializer.run(writer);
+            for (int i = 0; i < readerCount; i++) {
+                CachedConnection reader = new CachedConnection(
+                        DriverManager.getConnection(url, config(true).toProperties()));
+                readers.add(reader);
+                idleReaders.add(reader);
+            }
+        } catch (SQLException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private static SQLiteConfig config(boolean readOnly) {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        // NORMAL is durable across application crashes in WAL mode and avoids an fsync per commit
+        config.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL);
+        config.setBusyTimeout(BUSY_TIMEOUT_MILLIS);
+        config.setReadOnly(readOnly);
+        return config;
+    }
+
+    // Run read-only work on an idle reader, waiting for one if all are busy
+    <T> T read(SqlWork<T> work) throws SQLException {
+        checkOpen();
+        CachedConnection reader;
+        try {
+            reader = idleReaders.poll(BORROW_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        if (reader == null) {
+            throw new SQLException("Timed out waiting for a database connection");
+        }
+        try {
+            return work.run(reader);
+        } finally {
+            idleReaders.add(reader);
+        }
+    }
+
+    // Run work on the writer connection, one caller at a time
+    <T> T write(SqlWork<T> work) throws SQLException {
+        checkOpen();
+        writeLock.lock();
+        try {
+            return work.run(writer);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Run work on the writer inside a single transaction, rolled back if it throws
+    <T> T transaction(SqlWork<T> work) throws SQLException {
+        return write(conn -> {
+            Connection raw = conn.connection();
+            raw.setAutoCommit(false);
+            try {
+                T result = work.run(conn);
+                raw.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                raw.rollback();
+                throw e;
+            } finally {
+                raw.setAutoCommit(true);
+            }
+        });
+    }
+
+    StatementCacheStats statementCacheStats() {
+        long hits = writer.hits();
+        long misses = writer.misses();
+        long evictions = writer.evictions();
+        for (CachedConnection reader : readers) {
+            hits += reader.hits();
+            misses += reader.misses();
+            evictions += reader.evictions();
+        }
+        return new StatementCacheStats(hits, misses, evictions);
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    private void checkOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("Database connection is not initialized or has been closed");
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        closed = true;
+        SQLException failure = null;
+        List<CachedConnection> all = new ArrayList<>(readers);
+        all.add(writer);
+        for (CachedConnection conn : all) {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                if (failure == null) failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
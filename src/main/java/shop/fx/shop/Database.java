@@ -1,8 +1,20 @@
 package shop.fx.shop;
-import java.lang.reflect.Field;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.io.IOException;
@@ -13,24 +25,23 @@ class Database {
     // Test usage
     public static void main(String[] args) {
         DatabaseManager db = null;
+        try {
+            db = new DatabaseManager();
 
-        for (int i = 0; i < 10; i++) {
-            try {
-                db = new DatabaseManager();
-
-                // Add a product with an image path
-                Product product = new Product("Phone " + i, "High-performance Phone wrwewwwfwewjfofoewfoeoheovovcowencejncwencoewncojewcnewcnewnvewnveoaoncownoewfowenewnvnvjnnv", 300, "PhoneStore", "C:/Users/Just/Pictures/Untitled.jpg");
-                db.addProduct(product);
-                System.out.println("Product added with ID: " + product.getId());
-            } catch (SQLException e) {
-                System.err.println("Database error: " + e.getMessage());
-            } finally {
-                if (db != null) {
-                    try {
-                        db.closeConnection();
-                    } catch (SQLException e) {
-                        System.err.println("Error closing connection: " + e.getMessage());
-                    }
+            // Add products with an image path in one batch
+            List<Product> products = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                products.add(new Product("Phone " + i, "High-performance Phone wrwewwwfwewjfofoewfoeoheovovcowencejncwencoewncojewcnewcnewnvewnveoaoncownoewfowenewnvnvjnnv", 300, "PhoneStore", "C:/Users/Just/Pictures/Untitled.jpg"));
+            }
+            System.out.println("Products added: " + db.importProducts(products));
+        } catch (SQLException e) {
+            System.err.println("Database error: " + e.getMessage());
+        } finally {
+            if (db != null) {
+                try {
+                    db.closeConnection();
+                } catch (SQLException e) {
+                    System.err.println("Error closing connection: " + e.getMessage());
                 }
             }
         }
@@ -45,6 +56,7 @@ class Product {
     private final double price;
     private final String seller;
     private final byte[] image;
+    private final boolean hasImage;
 
 
     public String getSellerName() {
@@ -57,6 +69,19 @@ class Product {
         this.price = price;
         this.seller = seller;
         this.image = imagePath != null ? loadImage(imagePath) : null;
+        this.hasImage = image != null;
+    }
+
+    // Build a product from a stored row. image may be null while hasImage is true when the
+    // row was read without its BLOB; the image is then fetched on demand by id.
+    Product(int id, String name, String description, double price, String seller, byte[] image, boolean hasImage) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.price = price;
+        this.seller = seller;
+        this.image = image;
+        this.hasImage = hasImage;
     }
 
     // Load image from file path and convert to byte array
@@ -94,9 +119,15 @@ class Product {
         return seller;
     }
 
+    // Image bytes, only present on products built from a file; listing rows fetch theirs on demand
     public byte[] getImage() {
         return image;
     }
+
+    // Whether an image is stored for this product, even if it has not been loaded
+    public boolean hasImage() {
+        return hasImage;
+    }
 }
 
 // User class to encapsulate user data
@@ -136,16 +167,64 @@ class User {
 
 // DatabaseManager class to handle all database operations using standard JDBC
 class DatabaseManager {
-    Connection conn;
+    private final ConnectionPool pool;
+    // Sessions of signed-in users by user id, kept in step with updateUser and removeUser
+    private final Map<Integer, Session> sessions = new ConcurrentHashMap<>();
+    private final SellerDictionary sellers = new SellerDictionary();
+    // Checkouts waiting to be written, and the lock of the thread writing them (see checkout)
+    private final Queue<PendingOrder> pendingOrders = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock orderCommitLock = new ReentrantLock();
     private static final String DB_URL = "jdbc:sqlite:marketplace.db";
+    // Read-only connections kept open next to the single writer
+    private static final int READER_COUNT = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    // Keyset cursor that starts paging at the newest product
+    static final int FIRST_PAGE = Integer.MAX_VALUE;
+    // Listing columns of products p: everything except the image BLOB, which is fetched separately by id.
+    // readProduct depends on this column order.
+    static final String LISTING_COLUMNS =
+            "p.id, p.name, p.description, p.price, p.seller_id, p.image IS NOT NULL AS has_image";
+    // Latest schema version, see migrate()
+    private static final int SCHEMA_VERSION = 5;
+    // bm25 column weights for name, description and seller matches
+    private static final String SEARCH_RANK = "bm25(products_fts, 10.0, 1.0, 5.0)";
+    // Most search results returned; broad one-letter prefixes can otherwise match most of the catalog
+    static final int SEARCH_LIMIT = 500;
+    // Rows written per transaction by importProducts
+    static final int IMPORT_CHUNK_SIZE = 1000;
+    // Most queued orders written in one commit
+    private static final int MAX_ORDERS_PER_COMMIT = 256;
+
+    // One line of an order: how many of a product were bought, at what price each
+    record OrderLine(int productId, int quantity, double unitPrice) {
+    }
+
+    // An order waiting for checkout's group commit. The fields are written and read under orderCommitLock.
+    private static final class PendingOrder {
+        final int userId;
+        final List<OrderLine> lines;
+        boolean done;
+        int orderId;
+        Throwable failure;
+
+        PendingOrder(int userId, List<OrderLine> lines) {
+            this.userId = userId;
+            this.lines = lines;
+        }
+    }
 
     public DatabaseManager() {
+        this(DB_URL);
+    }
+
+    // Database at another JDBC URL, e.g. a scratch file for benchmarks
+    DatabaseManager(String url) {
         try {
             // Explicitly load SQLite JDBC driver
             Class.forName("org.sqlite.JDBC");
-            conn = DriverManager.getConnection(DB_URL);
-            conn.setAutoCommit(true);
-            initializeDatabase();
+            pool = new ConnectionPool(url, READER_COUNT, conn -> {
+                initializeDatabase(conn.connection());
+                return null;
+            });
         } catch (ClassNotFoundException e) {
             System.err.println("SQLite JDBC driver not found. Ensure sqlite-jdbc.jar is in the classpath.");
             throw new RuntimeException("Failed to load SQLite driver: " + e.getMessage(), e);
@@ -154,18 +233,9 @@ class DatabaseManager {
             throw new RuntimeException("Failed to connect to database", e);
         }
     }
-    public boolean isAdmin(int userId) throws SQLException {
-        String sql = "SELECT role FROM users WHERE id = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, userId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                return rs.next() && rs.getString("role").equals("Admin");
-            }
-        }
-    }
 
     // Initialize database and create tables
-    private void initializeDatabase() throws SQLException {
+    private void initializeDatabase(Connection conn) throws SQLException {
         try (Statement stmt = conn.createStatement()) {
             // Create products table with image BLOB
             stmt.execute("CREATE TABLE IF NOT EXISTS products (" +
@@ -183,229 +253,817 @@ class DatabaseManager {
                     "email TEXT NOT NULL," +
                     "role TEXT NOT NULL," +
                     "password TEXT NOT NULL)");
+
+            migrate(conn, stmt);
         }
     }
 
-    // Add a new product
+    // Upgrade older database files step by step; the applied version is kept in PRAGMA user_version
+    private void migrate(Connection conn, Statement stmt) throws SQLException {
+        int version;
+        try (ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            version = rs.next() ? rs.getInt(1) : 0;
+        }
+        if (version >= SCHEMA_VERSION) {
+            return;
+        }
+        conn.setAutoCommit(false);
+        try {
+            if (version < 1) {
+                createSearchIndex(stmt);
+            }
+            if (version < 2) {
+                createThumbnailTable(stmt);
+            }
+            if (version < 3) {
+                createOrderTables(stmt);
+            }
+            if (version < 4) {
+                createFilterIndexes(stmt);
+            }
+            if (version < 5) {
+                moveSellersToTable(stmt);
+            }
+            stmt.execute("PRAGMA user_version = " + SCHEMA_VERSION);
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    // Version 1: FTS5 index over name, description and seller, kept in sync with products by triggers
+    private void createSearchIndex(Statement stmt) throws SQLException {
+        stmt.execute("CREATE VIRTUAL TABLE IF NOT EXISTS products_fts USING fts5(" +
+                "name, description, seller," +
+                "content='products', content_rowid='id'," +
+                "tokenize='unicode61 remove_diacritics 2', prefix='2 3')");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS products_fts_insert AFTER INSERT ON products BEGIN " +
+                "INSERT INTO products_fts (rowid, name, description, seller) " +
+                "VALUES (new.id, new.name, new.description, new.seller); END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS products_fts_delete AFTER DELETE ON products BEGIN " +
+                "INSERT INTO products_fts (products_fts, rowid, name, description, seller) " +
+                "VALUES ('delete', old.id, old.name, old.description, old.seller); END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS products_fts_update AFTER UPDATE OF name, description, seller ON products BEGIN " +
+                "INSERT INTO products_fts (products_fts, rowid, name, description, seller) " +
+                "VALUES ('delete', old.id, old.name, old.description, old.seller); " +
+                "INSERT INTO products_fts (rowid, name, description, seller) " +
+                "VALUES (new.id, new.name, new.description, new.seller); END");
+        // Backfill the index from rows written before it existed
+        stmt.execute("INSERT INTO products_fts (products_fts) VALUES ('rebuild')");
+    }
+
+    // Version 2: pre-scaled thumbnails per product and display size, removed together with their product.
+    // Rows that already have images get theirs from ThumbnailBackfill.
+    private void createThumbnailTable(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS product_thumbnails (" +
+                "product_id INTEGER NOT NULL," +
+                "size TEXT NOT NULL," +
+                "image BLOB NOT NULL," +
+                "PRIMARY KEY (product_id, size)) WITHOUT ROWID");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS product_thumbnails_delete AFTER DELETE ON products BEGIN " +
+                "DELETE FROM product_thumbnails WHERE product_id = old.id; END");
+    }
+
+    // Version 3: orders and their lines. Lines keep the price paid, since product prices can change later.
+    private void createOrderTables(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS orders (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                "user_id INTEGER NOT NULL REFERENCES users(id)," +
+                "total REAL NOT NULL," +
+                "created_at TEXT NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS orders_user ON orders (user_id)");
+        stmt.execute("CREATE TABLE IF NOT EXISTS order_lines (" +
+                "order_id INTEGER NOT NULL REFERENCES orders(id)," +
+                "product_id INTEGER NOT NULL," +
+                "quantity INTEGER NOT NULL CHECK (quantity > 0)," +
+                "unit_price REAL NOT NULL," +
+                "PRIMARY KEY (order_id, product_id)) WITHOUT ROWID");
+    }
+
+    // Version 4: indexes for getFilteredProducts. Both end in price (and the implicit rowid), so a seller
+    // and price range is one index range scan that already returns rows in the listing order.
+    private void createFilterIndexes(Statement stmt) throws SQLException {
+        stmt.execute("CREATE INDEX IF NOT EXISTS products_price ON products (price)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS products_seller_price ON products (seller, price)");
+    }
+
+    // Version 5: seller names move to a sellers table that products reference by id. The search index
+    // is rebuilt over a view that joins the name back in, and the seller index is rebuilt on seller_id.
+    private void moveSellersToTable(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS sellers (" +
+                "id INTEGER PRIMARY KEY," +
+                "name TEXT NOT NULL UNIQUE)");
+        stmt.execute("INSERT OR IGNORE INTO sellers (name) SELECT DISTINCT seller FROM products");
+        stmt.execute("ALTER TABLE products ADD COLUMN seller_id INTEGER REFERENCES sellers(id)");
+        stmt.execute("UPDATE products SET seller_id = (SELECT s.id FROM sellers s WHERE s.name = products.seller)");
+
+        // The old triggers, index and search table read the seller column, which has to go
+        stmt.execute("DROP TRIGGER IF EXISTS products_fts_insert");
+        stmt.execute("DROP TRIGGER IF EXISTS products_fts_delete");
+        stmt.execute("DROP TRIGGER IF EXISTS products_fts_update");
+        stmt.execute("DROP TABLE IF EXISTS products_fts");
+        stmt.execute("DROP INDEX IF EXISTS products_seller_price");
+        stmt.execute("ALTER TABLE products DROP COLUMN seller");
+        stmt.execute("CREATE INDEX IF NOT EXISTS products_seller_price ON products (seller_id, price)");
+
+        stmt.execute("CREATE VIEW IF NOT EXISTS products_search AS " +
+                "SELECT p.id, p.name, p.description, s.name AS seller FROM products p JOIN sellers s ON s.id = p.seller_id");
+        stmt.execute("CREATE VIRTUAL TABLE products_fts USING fts5(" +
+                "name, description, seller," +
+                "content='products_search', content_rowid='id'," +
+                "tokenize='unicode61 remove_diacritics 2', prefix='2 3')");
+        stmt.execute("CREATE TRIGGER products_fts_insert AFTER INSERT ON products BEGIN " +
+                "INSERT INTO products_fts (rowid, name, description, seller) " +
+                "VALUES (new.id, new.name, new.description, (SELECT name FROM sellers WHERE id = new.seller_id)); END");
+        stmt.execute("CREATE TRIGGER products_fts_delete AFTER DELETE ON products BEGIN " +
+                "INSERT INTO products_fts (products_fts, rowid, name, description, seller) " +
+                "VALUES ('delete', old.id, old.name, old.description, (SELECT name FROM sellers WHERE id = old.seller_id)); END");
+        stmt.execute("CREATE TRIGGER products_fts_update AFTER UPDATE OF name, description, seller_id ON products BEGIN " +
+                "INSERT INTO products_fts (products_fts, rowid, name, description, seller) " +
+                "VALUES ('delete', old.id, old.name, old.description, (SELECT name FROM sellers WHERE id = old.seller_id)); " +
+                "INSERT INTO products_fts (rowid, name, description, seller) " +
+                "VALUES (new.id, new.name, new.description, (SELECT name FROM sellers WHERE id = new.seller_id)); END");
+        // Renaming a seller changes the indexed text of all of its products
+        stmt.execute("CREATE TRIGGER sellers_fts_update AFTER UPDATE OF name ON sellers BEGIN " +
+                "INSERT INTO products_fts (products_fts, rowid, name, description, seller) " +
+                "SELECT 'delete', id, name, description, old.name FROM products WHERE seller_id = old.id; " +
+                "INSERT INTO products_fts (rowid, name, description, seller) " +
+                "SELECT id, name, description, new.name FROM products WHERE seller_id = new.id; END");
+        stmt.execute("INSERT INTO products_fts (products_fts) VALUES ('rebuild')");
+    }
+
+    // Ids of seller names, creating sellers that do not exist yet. Call inside the transaction that writes the
+    // products using the ids, so a rolled back write leaves no sellers behind.
+    private Map<String, Integer> sellerIds(CachedConnection conn, Collection<String> names) throws SQLException {
+        Map<String, Integer> ids = new HashMap<>();
+        for (String name : names) {
+            ids.put(name, sellers.id(conn, name));
+        }
+        return ids;
+    }
+
+    // Add a new product together with its thumbnails
     public void addProduct(Product product) throws SQLException {
-        checkConnection();
-        String sql = "INSERT INTO products (name, description, price, seller, image) VALUES (?, ?, ?, ?, ?)";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setString(1, product.getName());
-            pstmt.setString(2, product.getDescription());
-            pstmt.setDouble(3, product.getPrice());
-            pstmt.setString(4, product.getSeller());
-            pstmt.setBytes(5, product.getImage());
-            pstmt.executeUpdate();
-
-            try (ResultSet rs = pstmt.getGeneratedKeys()) {
-                if (rs.next()) {
-                    product.setId(rs.getInt(1));
+        timed("addProduct", () -> {
+            String sql = "INSERT INTO products (name, description, price, seller_id, image) VALUES (?, ?, ?, ?, ?)";
+            // Scale images before taking the writer, so other writes do not wait on image decoding
+            Map<Thumbnails.Size, byte[]> thumbnails = Thumbnails.createAll(product.getImage());
+            pool.transaction(conn -> {
+                int sellerId = sellers.id(conn, product.getSeller());
+                PreparedStatement pstmt = conn.prepareInsert(sql);
+                pstmt.setString(1, product.getName());
+                pstmt.setString(2, product.getDescription());
+                pstmt.setDouble(3, product.getPrice());
+                pstmt.setInt(4, sellerId);
+                pstmt.setBytes(5, product.getImage());
+                pstmt.executeUpdate();
+
+                try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                    if (rs.next()) {
+                        product.setId(rs.getInt(1));
+                    }
+                }
+                insertThumbnails(conn, product.getId(), thumbnails);
+                return null;
+            });
+            return null;
+        });
+    }
+
+    // Insert many products and their thumbnails with batched statements, committing every IMPORT_CHUNK_SIZE rows.
+    // Returns the number of rows inserted.
+    public int importProducts(List<Product> products) throws SQLException {
+        return timed("importProducts", () -> {
+            String sql = "INSERT INTO products (name, description, price, seller_id, image) VALUES (?, ?, ?, ?, ?)";
+            int inserted = 0;
+            for (int start = 0; start < products.size(); start += IMPORT_CHUNK_SIZE) {
+                List<Product> chunk = products.subList(start, Math.min(start + IMPORT_CHUNK_SIZE, products.size()));
+                List<Map<Thumbnails.Size, byte[]>> thumbnails = createThumbnails(chunk);
+                Set<String> chunkSellers = new HashSet<>();
+                for (Product product : chunk) {
+                    chunkSellers.add(product.getSeller());
                 }
+                int[] ids = pool.transaction(conn -> {
+                    Map<String, Integer> sellerIds = sellerIds(conn, chunkSellers);
+                    PreparedStatement pstmt = conn.prepare(sql);
+                    pstmt.clearBatch(); // Drop rows a failed earlier import left on the cached statement
+                    for (Product product : chunk) {
+                        pstmt.setString(1, product.getName());
+                        pstmt.setString(2, product.getDescription());
+                        pstmt.setDouble(3, product.getPrice());
+                        pstmt.setInt(4, sellerIds.get(product.getSeller()));
+                        pstmt.setBytes(5, product.getImage());
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+
+                    // The writer holds the only write transaction, so AUTOINCREMENT handed the chunk consecutive ids
+                    int lastId;
+                    try (ResultSet rs = conn.prepare("SELECT last_insert_rowid()").executeQuery()) {
+                        if (!rs.next()) {
+                            throw new SQLException("No id for the imported products");
+                        }
+                        lastId = rs.getInt(1);
+                    }
+                    int[] chunkIds = new int[chunk.size()];
+                    for (int i = 0; i < chunk.size(); i++) {
+                        chunkIds[i] = lastId - chunk.size() + 1 + i;
+                        insertThumbnails(conn, chunkIds[i], thumbnails.get(i));
+                    }
+                    return chunkIds;
+                });
+                // Only once the chunk is committed, so products of a failed chunk keep having no id
+                for (int i = 0; i < chunk.size(); i++) {
+                    chunk.get(i).setId(ids[i]);
+                }
+                inserted += chunk.size();
             }
+            return inserted;
+        });
+    }
+
+    // Scale the images of products in parallel, on virtual threads that live only as long as this call
+    // rather than on the shared common ForkJoinPool
+    private static List<Map<Thumbnails.Size, byte[]>> createThumbnails(List<Product> products) throws SQLException {
+        try (ExecutorService scaling = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Map<Thumbnails.Size, byte[]>>> futures = new ArrayList<>(products.size());
+            for (Product product : products) {
+                futures.add(scaling.submit(() -> Thumbnails.createAll(product.getImage())));
+            }
+            List<Map<Thumbnails.Size, byte[]>> thumbnails = new ArrayList<>(products.size());
+            for (Future<Map<Thumbnails.Size, byte[]>> future : futures) {
+                thumbnails.add(future.get());
+            }
+            return thumbnails;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while creating thumbnails", e);
+        } catch (ExecutionException e) {
+            throw new SQLException("Could not create thumbnails", e.getCause());
         }
     }
 
-    // Remove a product by ID
-    public void removeProduct(int id) throws SQLException {
-        checkConnection();
-        String sql = "DELETE FROM products WHERE id = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, id);
-            pstmt.executeUpdate();
+    private void insertThumbnails(CachedConnection conn, int productId, Map<Thumbnails.Size, byte[]> thumbnails) throws SQLException {
+        if (thumbnails.isEmpty()) {
+            return;
+        }
+        PreparedStatement pstmt = conn.prepare("INSERT OR REPLACE INTO product_thumbnails (product_id, size, image) VALUES (?, ?, ?)");
+        for (Map.Entry<Thumbnails.Size, byte[]> thumbnail : thumbnails.entrySet()) {
+            pstmt.setInt(1, productId);
+            pstmt.setString(2, thumbnail.getKey().name());
+            pstmt.setBytes(3, thumbnail.getValue());
+            pstmt.addBatch();
         }
+        pstmt.executeBatch();
     }
 
-    // Search products by name, description, or seller
-    public List<Product> searchProducts(String query) throws SQLException {
-        checkConnection();
-        List<Product> products = new ArrayList<>();
-        String sql = "SELECT * FROM products WHERE name LIKE ? OR description LIKE ? OR seller LIKE ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, "%" + query + "%");
-            pstmt.setString(2, "%" + query + "%");
-            pstmt.setString(3, "%" + query + "%");
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    Product product = new Product(
-                            rs.getString("name"),
-                            rs.getString("description"),
-                            rs.getDouble("price"),
-                            rs.getString("seller"),
-                            null // Image path not stored in DB, only byte[]
-                    );
-                    product.setId(rs.getInt("id"));
-                    // Set image directly from DB
-                    try {
-                        Field imageField = Product.class.getDeclaredField("image");
-                        imageField.setAccessible(true);
-                        imageField.set(product, rs.getBytes("image"));
-                    } catch (NoSuchFieldException | IllegalAccessException e) {
-                        System.err.println("Error setting image field: " + e.getMessage());
+    // Store thumbnails generated after the product was written
+    public void saveThumbnails(int productId, Map<Thumbnails.Size, byte[]> thumbnails) throws SQLException {
+        timed("saveThumbnails", () -> {
+            pool.write(conn -> {
+                insertThumbnails(conn, productId, thumbnails);
+                return null;
+            });
+            return null;
+        });
+    }
+
+    // Ids of products above afterId that have an image but no thumbnails yet, in id order
+    public List<Integer> getProductsWithoutThumbnails(int afterId, int limit) throws SQLException {
+        return timed("getProductsWithoutThumbnails", () -> {
+            String sql = "SELECT p.id FROM products p WHERE p.id > ? AND p.image IS NOT NULL " +
+                    "AND NOT EXISTS (SELECT 1 FROM product_thumbnails t WHERE t.product_id = p.id) " +
+                    "ORDER BY p.id LIMIT ?";
+            return pool.read(conn -> {
+                List<Integer> ids = new ArrayList<>();
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setInt(1, afterId);
+                pstmt.setInt(2, limit);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getInt(1));
                     }
-                    products.add(product);
                 }
+                return ids;
+            });
+        });
+    }
+
+    // Store an order with its lines and return the new order id.
+    // Group commit: concurrent checkouts queue up, and the thread that gets the commit lock writes every queued
+    // order in one transaction, so parallel buyers share commits instead of each waiting for its own.
+    public int checkout(int userId, List<OrderLine> lines) throws SQLException {
+        return timed("checkout", () -> {
+            if (lines.isEmpty()) {
+                throw new IllegalArgumentException("An order needs at least one line");
             }
-        }
-        return products;
+            PendingOrder order = new PendingOrder(userId, List.copyOf(lines));
+            pendingOrders.add(order);
+            orderCommitLock.lock();
+            try {
+                while (!order.done) {
+                    commitPendingOrders();
+                }
+            } finally {
+                orderCommitLock.unlock();
+            }
+            switch (order.failure) {
+                case null -> {
+                    return order.orderId;
+                }
+                case SQLException e -> throw e;
+                case RuntimeException e -> throw e;
+                case Error e -> throw e;
+                default -> throw new SQLException("Order was not stored", order.failure);
+            }
+        });
     }
 
-    // Get all products
-    public List<Product> getAllProducts() throws SQLException {
-        checkConnection();
-        List<Product> products = new ArrayList<>();
-        String sql = "SELECT * FROM products";
-        try (Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                Product product = new Product(
-                        rs.getString("name"),
-                        rs.getString("description"),
-                        rs.getDouble("price"),
-                        rs.getString("seller"),
-                        null // Image path not stored in DB, only byte[]
-                );
-                product.setId(rs.getInt("id"));
-                // Set image directly from DB
+    // Write the queued orders in one transaction. If that fails, write them one by one,
+    // so a single bad order fails alone instead of taking the others with it.
+    // Every order taken off the queue ends up done, with an id or a failure, whatever is thrown;
+    // otherwise its buyer would wait for it forever while holding orderCommitLock.
+    private void commitPendingOrders() {
+        List<PendingOrder> batch = new ArrayList<>();
+        PendingOrder next;
+        while (batch.size() < MAX_ORDERS_PER_COMMIT && (next = pendingOrders.poll()) != null) {
+            batch.add(next);
+        }
+        try {
+            writeOrders(batch);
+        } catch (Throwable e) {
+            for (PendingOrder order : batch) {
                 try {
-                    Field imageField = Product.class.getDeclaredField("image");
-                    imageField.setAccessible(true);
-                    imageField.set(product, rs.getBytes("image"));
-                } catch (NoSuchFieldException | IllegalAccessException e) {
-                    System.err.println("Error setting image field: " + e.getMessage());
+                    writeOrders(List.of(order));
+                } catch (Throwable orderFailure) {
+                    order.failure = orderFailure;
                 }
-                products.add(product);
+            }
+        } finally {
+            for (PendingOrder order : batch) {
+                order.done = true;
             }
         }
-        return products.reversed();
     }
 
-    public List<User> getAllUsers() throws SQLException {
-        checkConnection();
-        List<User> users = new ArrayList<>();
-        String sql = "SELECT * FROM users";
-        try (Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                User user = new User(
-                        rs.getString("username"),
-                        rs.getString("email"),
-                        rs.getString("role")
-                );
-                user.setId(rs.getInt("id"));
-                users.add(user);
+    private void writeOrders(List<PendingOrder> batch) throws SQLException {
+        int[] orderIds = pool.transaction(conn -> {
+            PreparedStatement insertOrder = conn.prepare("INSERT INTO orders (user_id, total) VALUES (?, ?) RETURNING id");
+            PreparedStatement insertLine = conn.prepare(
+                    "INSERT INTO order_lines (order_id, product_id, quantity, unit_price) VALUES (?, ?, ?, ?)");
+            insertLine.clearBatch(); // Drop lines a failed earlier attempt left on the cached statement
+            int[] ids = new int[batch.size()];
+            for (int i = 0; i < batch.size(); i++) {
+                PendingOrder order = batch.get(i);
+                insertOrder.setInt(1, order.userId);
+                insertOrder.setDouble(2, orderTotal(order.lines));
+                try (ResultSet rs = insertOrder.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new SQLException("Order insert returned no id");
+                    }
+                    ids[i] = rs.getInt(1);
+                }
+                for (OrderLine line : order.lines) {
+                    insertLine.setInt(1, ids[i]);
+                    insertLine.setInt(2, line.productId());
+                    insertLine.setInt(3, line.quantity());
+                    insertLine.setDouble(4, line.unitPrice());
+                    insertLine.addBatch();
+                }
             }
+            insertLine.executeBatch();
+            return ids;
+        });
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).orderId = orderIds[i];
         }
-        return users;
     }
 
-    // Add a new user with hashed password
-    public void addUser(User user, String password) throws SQLException {
-        checkConnection();
-        String sql = "INSERT INTO users (username, email, role, password) VALUES (?, ?, ?, ?)";
-        try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            stmt.setString(1, user.getUsername());
-            stmt.setString(2, user.getEmail());
-            stmt.setString(3, user.getRole());
-            stmt.setString(4, hashPassword(password));
-            stmt.executeUpdate();
-
-            try (ResultSet rs = stmt.getGeneratedKeys()) {
-                if (rs.next()) {
-                    user.setId(rs.getInt(1));
+    // Sum in cents, like Cart, so the stored total matches the one the buyer saw
+    private static double orderTotal(List<OrderLine> lines) {
+        long cents = 0;
+        for (OrderLine line : lines) {
+            cents += Math.round(line.unitPrice() * 100) * line.quantity();
+        }
+        return cents / 100.0;
+    }
+
+    // Remove a product by ID
+    public void removeProduct(int id) throws SQLException {
+        timed("removeProduct", () -> {
+            String sql = "DELETE FROM products WHERE id = ?";
+            pool.write(conn -> {
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setInt(1, id);
+                pstmt.executeUpdate();
+                return null;
+            });
+            return null;
+        });
+    }
+
+    // Search products by name, description, or seller through the full-text index, best matches first.
+    // Every word of the query must match the start of a word in the product.
+    public List<Product> searchProducts(String query) throws SQLException {
+        return searchProducts(query, new QueryHandle());
+    }
+
+    // Same as searchProducts(query), cancellable from another thread through handle
+    public List<Product> searchProducts(String query, QueryHandle handle) throws SQLException {
+        return searchProducts(query, ProductFilter.NONE, handle);
+    }
+
+    // Same as searchProducts(query, handle), narrowed to the products matching filter. The filter is part of
+    // the query, so the SEARCH_LIMIT best matches are taken among the filtered products only.
+    public List<Product> searchProducts(String query, ProductFilter filter, QueryHandle handle) throws SQLException {
+        return timed("searchProducts", () -> {
+            String match = toMatchExpression(query);
+            if (match.isEmpty()) {
+                return new ArrayList<>();
+            }
+            StringBuilder sql = new StringBuilder("SELECT ").append(LISTING_COLUMNS).append(" FROM products_fts ")
+                    .append("JOIN products p ON p.id = products_fts.rowid WHERE products_fts MATCH ?");
+            List<Object> params = new ArrayList<>();
+            params.add(match);
+            appendFilter(sql, params, filter);
+            sql.append(" ORDER BY ").append(SEARCH_RANK).append(" LIMIT ?");
+            params.add(SEARCH_LIMIT);
+            return pool.read(conn -> {
+                List<Product> products = new ArrayList<>();
+                PreparedStatement pstmt = conn.prepare(sql.toString());
+                for (int i = 0; i < params.size(); i++) {
+                    pstmt.setObject(i + 1, params.get(i));
                 }
+                handle.attach(pstmt);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    readProducts(conn, rs, products);
+                } finally {
+                    handle.detach();
+                }
+                return products;
+            });
+        });
+    }
+
+    // Turn user input into an FTS5 query of quoted prefix terms, so operators and punctuation are matched literally
+    static String toMatchExpression(String query) {
+        StringBuilder match = new StringBuilder();
+        for (String word : query.trim().split("\\s+")) {
+            String term = word.replace("\"", "");
+            if (term.isEmpty()) continue;
+            if (!match.isEmpty()) match.append(' ');
+            match.append('"').append(term).append("\"*");
+        }
+        return match.toString();
+    }
+
+    // Get all products, newest first
+    public List<Product> getAllProducts() throws SQLException {
+        return timed("getAllProducts", () -> {
+            String sql = "SELECT " + LISTING_COLUMNS + " FROM products p ORDER BY p.id DESC";
+            return pool.read(conn -> {
+                List<Product> products = new ArrayList<>();
+                try (ResultSet rs = conn.prepare(sql).executeQuery()) {
+                    readProducts(conn, rs, products);
+                }
+                return products;
+            });
+        });
+    }
+
+    // Get one page of products, newest first, with ids strictly below beforeId.
+    // Pass FIRST_PAGE for the first page and the id of the last product received for the next one.
+    public List<Product> getProductsPage(int beforeId, int limit) throws SQLException {
+        return timed("getProductsPage", () -> {
+            String sql = "SELECT " + LISTING_COLUMNS + " FROM products p WHERE p.id < ? ORDER BY p.id DESC LIMIT ?";
+            return pool.read(conn -> {
+                List<Product> products = new ArrayList<>(limit);
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setInt(1, beforeId);
+                pstmt.setInt(2, limit);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    readProducts(conn, rs, products);
+                }
+                return products;
+            });
+        });
+    }
+
+    // Get one page of the products matching a filter, cheapest first (ties by id).
+    // Pass null for the first page and the last product received for the next one.
+    public List<Product> getFilteredProducts(ProductFilter filter, Product after, int limit) throws SQLException {
+        return timed("getFilteredProducts", () -> {
+            StringBuilder sql = new StringBuilder("SELECT ").append(LISTING_COLUMNS).append(" FROM products p WHERE 1");
+            List<Object> params = new ArrayList<>();
+            appendFilter(sql, params, filter);
+            if (after != null) {
+                // The plain price bound lets SQLite start the index scan at the cursor; the row value breaks ties by id
+                sql.append(" AND p.price >= ? AND (p.price, p.id) > (?, ?)");
+                params.add(after.getPrice());
+                params.add(after.getPrice());
+                params.add(after.getId());
             }
+            sql.append(" ORDER BY p.price, p.id LIMIT ?");
+            params.add(limit);
+            return pool.read(conn -> {
+                List<Product> products = new ArrayList<>(limit);
+                PreparedStatement pstmt = conn.prepare(sql.toString());
+                for (int i = 0; i < params.size(); i++) {
+                    pstmt.setObject(i + 1, params.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    readProducts(conn, rs, products);
+                }
+                return products;
+            });
+        });
+    }
+
+    // Add the conditions of filter on products p to a WHERE clause, and their parameters to params
+    private static void appendFilter(StringBuilder sql, List<Object> params, ProductFilter filter) {
+        if (filter.seller() != null) {
+            sql.append(" AND p.seller_id = (SELECT id FROM sellers WHERE name = ?)");
+            params.add(filter.seller());
+        }
+        if (filter.minPrice() != null) {
+            sql.append(" AND p.price >= ?");
+            params.add(filter.minPrice());
+        }
+        if (filter.maxPrice() != null) {
+            sql.append(" AND p.price <= ?");
+            params.add(filter.maxPrice());
         }
     }
 
-    // Authenticate user
-    public User authenticate(String username, String password) throws SQLException {
-        checkConnection();
-        String sql = "SELECT * FROM users WHERE username = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, username);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    String storedPassword = rs.getString("password");
-                    if (storedPassword.equals(hashPassword(password))) {
+    // Names of all sellers that have products, alphabetically
+    public List<String> getSellers() throws SQLException {
+        return timed("getSellers", () -> {
+            String sql = "SELECT s.name FROM sellers s " +
+                    "WHERE EXISTS (SELECT 1 FROM products p WHERE p.seller_id = s.id) ORDER BY s.name";
+            return pool.read(conn -> {
+                List<String> sellers = new ArrayList<>();
+                try (ResultSet rs = conn.prepare(sql).executeQuery()) {
+                    while (rs.next()) {
+                        sellers.add(rs.getString(1));
+                    }
+                }
+                return sellers;
+            });
+        });
+    }
+
+    // Get the stored image of a product, or null if it has none
+    public byte[] getProductImage(int productId) throws SQLException {
+        return timed("getProductImage", () -> {
+            String sql = "SELECT image FROM products WHERE id = ?";
+            return pool.read(conn -> {
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setInt(1, productId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? rs.getBytes("image") : null;
+                }
+            });
+        });
+    }
+
+    // Get a product thumbnail, or null if it has not been generated (no image, or not backfilled yet)
+    public byte[] getProductThumbnail(int productId, Thumbnails.Size size) throws SQLException {
+        return timed("getProductThumbnail", () -> {
+            String sql = "SELECT image FROM product_thumbnails WHERE product_id = ? AND size = ?";
+            return pool.read(conn -> {
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setInt(1, productId);
+                pstmt.setString(2, size.name());
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? rs.getBytes(1) : null;
+                }
+            });
+        });
+    }
+
+    // Map every remaining row of a listing result set (see LISTING_COLUMNS), sharing seller names
+    private void readProducts(CachedConnection conn, ResultSet rs, List<Product> products) throws SQLException {
+        while (rs.next()) {
+            products.add(readProduct(rs, sellers.name(conn, rs.getInt(5))));
+        }
+    }
+
+    // Map the current row of a listing result set; columns are read by position in LISTING_COLUMNS order.
+    // seller is the name of the row's seller_id.
+    static Product readProduct(ResultSet rs, String seller) throws SQLException {
+        return new Product(
+                rs.getInt(1),
+                rs.getString(2),
+                rs.getString(3),
+                rs.getDouble(4),
+                seller,
+                null, // Image BLOB is not part of listing rows
+                rs.getBoolean(6)
+        );
+    }
+
+    public List<User> getAllUsers() throws SQLException {
+        return timed("getAllUsers", () -> {
+            String sql = "SELECT * FROM users";
+            return pool.read(conn -> {
+                List<User> users = new ArrayList<>();
+                try (ResultSet rs = conn.prepare(sql).executeQuery()) {
+                    while (rs.next()) {
                         User user = new User(
                                 rs.getString("username"),
                                 rs.getString("email"),
                                 rs.getString("role")
                         );
                         user.setId(rs.getInt("id"));
-                        return user;
+                        users.add(user);
                     }
                 }
+                return users;
+            });
+        });
+    }
+
+    // Add a new user with hashed password
+    public void addUser(User user, String password) throws SQLException {
+        timed("addUser", () -> {
+            String sql = "INSERT INTO users (username, email, role, password) VALUES (?, ?, ?, ?)";
+            String hashedPassword = hashPassword(password);
+            pool.write(conn -> {
+                PreparedStatement stmt = conn.prepareInsert(sql);
+                stmt.setString(1, user.getUsername());
+                stmt.setString(2, user.getEmail());
+                stmt.setString(3, user.getRole());
+                stmt.setString(4, hashedPassword);
+                stmt.executeUpdate();
+
+                try (ResultSet rs = stmt.getGeneratedKeys()) {
+                    if (rs.next()) {
+                        user.setId(rs.getInt(1));
+                    }
+                }
+                return null;
+            });
+            return null;
+        });
+    }
+
+    // Authenticate user
+    public Session authenticate(String username, String password) throws SQLException {
+        return timed("authenticate", () -> {
+            String sql = "SELECT * FROM users WHERE username = ?";
+            User authenticated = pool.read(conn -> {
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setString(1, username);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        String storedPassword = rs.getString("password");
+                        if (storedPassword.equals(hashPassword(password))) {
+                            User user = new User(
+                                    rs.getString("username"),
+                                    rs.getString("email"),
+                                    rs.getString("role")
+                            );
+                            user.setId(rs.getInt("id"));
+                            return user;
+                        }
+                    }
+                }
+                return null;
+            });
+            if (authenticated == null) {
+                return null;
             }
-        }
-        return null;
+            // Signing in again ends the user's previous session
+            Session session = new Session(authenticated);
+            Session previous = sessions.put(authenticated.getId(), session);
+            if (previous != null) {
+                previous.end();
+            }
+            return session;
+        });
+    }
+
+    // Check whether a user still has the temporary "temp" password
+    public boolean hasDefaultPassword(int userId) throws SQLException {
+        return timed("hasDefaultPassword", () -> {
+            String sql = "SELECT password FROM users WHERE id = ?";
+            return pool.read(conn -> {
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setInt(1, userId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        return rs.getString("password").equals(hashPassword("temp"));
+                    }
+                }
+                throw new SQLException("User not found");
+            });
+        });
     }
 
     // Update user details
     public void updateUser(int id, String username, String email, String role, String password) throws SQLException {
-        checkConnection();
-        String sql = "UPDATE users SET username = ?, email = ?, role = ?, password = ? WHERE id = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, username);
-            pstmt.setString(2, email);
-            pstmt.setString(3, role);
-            pstmt.setString(4, hashPassword(password));
-            pstmt.setInt(5, id);
-            pstmt.executeUpdate();
-        }
+        timed("updateUser", () -> {
+            String sql = "UPDATE users SET username = ?, email = ?, role = ?, password = ? WHERE id = ?";
+            String hashedPassword = hashPassword(password);
+            pool.write(conn -> {
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setString(1, username);
+                pstmt.setString(2, email);
+                pstmt.setString(3, role);
+                pstmt.setString(4, hashedPassword);
+                pstmt.setInt(5, id);
+                pstmt.executeUpdate();
+                return null;
+            });
+            Session session = sessions.get(id);
+            if (session != null) {
+                User updated = new User(username, email, role);
+                updated.setId(id);
+                session.update(updated);
+            }
+            return null;
+        });
     }
 
     // Remove a user by ID
     public void removeUser(int id) throws SQLException {
-        checkConnection();
-        String sql = "DELETE FROM users WHERE id = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, id);
-            pstmt.executeUpdate();
-        }
+        timed("removeUser", () -> {
+            String sql = "DELETE FROM users WHERE id = ?";
+            pool.write(conn -> {
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setInt(1, id);
+                pstmt.executeUpdate();
+                return null;
+            });
+            Session session = sessions.remove(id);
+            if (session != null) {
+                session.end();
+            }
+            return null;
+        });
     }
 
     // Search users by username or email
     public List<User> searchUsers(String query) throws SQLException {
-        checkConnection();
-        List<User> users = new ArrayList<>();
-        String sql = "SELECT * FROM users WHERE username LIKE ? OR email LIKE ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, "%" + query + "%");
-            pstmt.setString(2, "%" + query + "%");
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    User user = new User(
-                            rs.getString("username"),
-                            rs.getString("email"),
-                            rs.getString("role")
-                    );
-                    user.setId(rs.getInt("id"));
-                    users.add(user);
+        return timed("searchUsers", () -> {
+            String sql = "SELECT * FROM users WHERE username LIKE ? OR email LIKE ?";
+            return pool.read(conn -> {
+                List<User> users = new ArrayList<>();
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setString(1, "%" + query + "%");
+                pstmt.setString(2, "%" + query + "%");
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        User user = new User(
+                                rs.getString("username"),
+                                rs.getString("email"),
+                                rs.getString("role")
+                        );
+                        user.setId(rs.getInt("id"));
+                        users.add(user);
+                    }
                 }
-            }
-        }
-        return users;
+                return users;
+            });
+        });
     }
 
-    // Close database connection
+    // Prepared statement cache hits, misses and evictions across all connections
+    public ConnectionPool.StatementCacheStats getStatementCacheStats() {
+        return pool.statementCacheStats();
+    }
+
+    // Close all pooled database connections
     public void closeConnection() throws SQLException {
-        if (conn != null && !conn.isClosed()) {
-            conn.close();
-            conn = null;
+        if (!pool.isClosed()) {
+            pool.close();
         }
     }
 
-    // Helper method to check connection
-    private void checkConnection() throws SQLException {
-        if (conn == null || conn.isClosed()) {
-            throw new SQLException("Database connection is not initialized or has been closed");
+    // Body of a public operation, see timed
+    private interface Operation<T> {
+        T run() throws SQLException;
+    }
+
+    // Run a public operation, recording its time, rows and BLOB bytes returned under its name in Metrics
+    private static <T> T timed(String name, Operation<T> operation) throws SQLException {
+        Metrics.Timer timer = Metrics.timer(Metrics.DATABASE, name);
+        long start = System.nanoTime();
+        try {
+            T result = operation.run();
+            timer.record(System.nanoTime() - start, Metrics.rowsOf(result), Metrics.blobBytesOf(result));
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            timer.recordFailure();
+            throw e;
         }
     }
 
-    // Hash password using SHA-256
-    private String hashPassword(String password) {
+    // Hash password using SHA-256 (package-private for the benchmarks)
+    static String hashPassword(String password) {
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
             byte[] hash = digest.digest(password.getBytes());
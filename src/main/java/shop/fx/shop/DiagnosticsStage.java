@@ -0,0 +1,151 @@
+package shop.fx.shop;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.SortedList;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+// Admin window listing the Metrics timers (database operations and JavaFX frames) and caches, refreshed every
+// second while it is open, so slow operations on a user's machine can be spotted without a profiler.
+// Pulse intervals are only measured while a Diagnostics window is showing.
+public class DiagnosticsStage extends Stage {
+    private static final Duration REFRESH_INTERVAL = Duration.seconds(1);
+
+    private static final double CACHE_TABLE_HEIGHT = 110;
+
+    // A cache's counters as read at one refresh
+    private record CacheRow(String name, Metrics.CacheCounters counters) {
+    }
+
+    private final ObservableList<Metrics.Timer> timers = FXCollections.observableArrayList();
+    private final ObservableList<CacheRow> caches = FXCollections.observableArrayList();
+
+    public DiagnosticsStage(Session session, FrameMetrics frameMetrics) {
+        setTitle("Diagnostics");
+        this.getIcons().add(UiAssets.appIcon());
+        if (!session.can(Session.Permission.VIEW_DIAGNOSTICS)) {
+            showAlert(Alert.AlertType.ERROR, "Access Denied", "Only administrators can view diagnostics.");
+            close();
+            return;
+        }
+
+        TableView<Metrics.Timer> table = new TableView<>();
+        table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+        table.setPlaceholder(new Label("Nothing measured yet"));
+        table.getColumns().add(textColumn("Group", Metrics.Timer::group));
+        table.getColumns().add(textColumn("Operation", Metrics.Timer::name));
+        table.getColumns().add(numberColumn("Calls", Metrics.Timer::getCount, "%,d"));
+        table.getColumns().add(numberColumn("Failures", Metrics.Timer::getFailures, "%,d"));
+        table.getColumns().add(numberColumn("Mean ms", Metrics.Timer::getMeanMillis, "%.2f"));
+        table.getColumns().add(numberColumn("p99 ms", Metrics.Timer::getP99Millis, "%.2f"));
+        table.getColumns().add(numberColumn("Max ms", Metrics.Timer::getMaxMillis, "%.2f"));
+        table.getColumns().add(numberColumn("Total ms", Metrics.Timer::getTotalMillis, "%,.0f"));
+        table.getColumns().add(numberColumn("Rows", Metrics.Timer::getRows, "%,d"));
+        table.getColumns().add(numberColumn("BLOB KB", timer -> timer.getBlobBytes() / 1024, "%,d"));
+        // Re-sorted by the chosen column whenever the timers are read again
+        SortedList<Metrics.Timer> sorted = new SortedList<>(timers);
+        sorted.comparatorProperty().bind(table.comparatorProperty());
+        table.setItems(sorted);
+
+        TableView<CacheRow> cacheTable = new TableView<>(caches);
+        cacheTable.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+        cacheTable.setPlaceholder(new Label("No caches"));
+        cacheTable.setPrefHeight(CACHE_TABLE_HEIGHT);
+        cacheTable.getColumns().add(textColumn("Cache", CacheRow::name));
+        cacheTable.getColumns().add(numberColumn("Hits", row -> row.counters().hits(), "%,d"));
+        cacheTable.getColumns().add(numberColumn("Misses", row -> row.counters().misses(), "%,d"));
+        cacheTable.getColumns().add(numberColumn("Hit %", row -> Metrics.Cache.hitRatio(row.counters()) * 100, "%.1f"));
+        cacheTable.getColumns().add(numberColumn("Evictions", row -> row.counters().evictions(), "%,d"));
+        cacheTable.getColumns().add(numberColumn("Entries", row -> tracked(row.counters().entries(), 1), "%,d"));
+        cacheTable.getColumns().add(numberColumn("KB", row -> tracked(row.counters().bytes(), 1024), "%,d"));
+        VBox tables = new VBox(10, table, cacheTable);
+        VBox.setVgrow(table, Priority.ALWAYS);
+
+        Button resetButton = new Button("Reset");
+        resetButton.getStyleClass().add("action-button");
+        resetButton.setOnAction(_ -> {
+            Metrics.resetAll();
+            refresh();
+        });
+        HBox bottomBox = new HBox(10, resetButton);
+        bottomBox.setAlignment(Pos.CENTER_RIGHT);
+        bottomBox.setPadding(new Insets(10, 0, 0, 0));
+
+        BorderPane root = new BorderPane(tables);
+        root.getStyleClass().add("root-pane");
+        root.setPadding(new Insets(10));
+        root.setBottom(bottomBox);
+
+        Timeline refresher = new Timeline(new KeyFrame(REFRESH_INTERVAL, _ -> refresh()));
+        refresher.setCycleCount(Timeline.INDEFINITE);
+        setOnShown(_ -> {
+            frameMetrics.watch();
+            refresher.play();
+        });
+        setOnHidden(_ -> {
+            refresher.stop();
+            frameMetrics.unwatch();
+        });
+        refresh();
+
+        Scene scene = new Scene(root, 900, 540);
+        UiAssets.addStylesheet(scene, "styles.css");
+        setScene(scene);
+    }
+
+    private void refresh() {
+        timers.setAll(Metrics.timers());
+        List<CacheRow> rows = new ArrayList<>();
+        for (Metrics.Cache cache : Metrics.caches()) {
+            rows.add(new CacheRow(cache.name(), cache.counters()));
+        }
+        caches.setAll(rows);
+    }
+
+    // value in units, or blank in the table where a cache does not track the value (reported as -1)
+    private static Long tracked(long value, long unit) {
+        return value < 0 ? null : value / unit;
+    }
+
+    private static <S> TableColumn<S, String> textColumn(String title, Function<S, String> value) {
+        TableColumn<S, String> column = new TableColumn<>(title);
+        column.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(value.apply(cell.getValue())));
+        return column;
+    }
+
+    private static <S> TableColumn<S, Number> numberColumn(String title, Function<S, Number> value, String format) {
+        TableColumn<S, Number> column = new TableColumn<>(title);
+        column.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(value.apply(cell.getValue())));
+        column.setCellFactory(_ -> new TableCell<>() {
+            @Override
+            protected void updateItem(Number item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || item == null ? null : String.format(format, item));
+            }
+        });
+        column.getStyleClass().add("number-column");
+        return column;
+    }
+
+    private void showAlert(Alert.AlertType type, String title, String message) {
+        Alert alert = new Alert(type);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.showAndWait();
+    }
+}
@@ -0,0 +1,51 @@
+package shop.fx.shop;
+import javafx.animation.AnimationTimer;
+import javafx.scene.Scene;
+
+// JavaFX frame timings in Metrics: the interval between pulses, where anything well above the
+// display's refresh interval is a stall the user saw, and the CSS and layout pass of each scene
+// installed here. Layout passes are timed from pulse listeners, which cost nothing on idle frames.
+// Pulse intervals need an AnimationTimer, which keeps pulses going at the display rate, so they are
+// only measured while someone is looking (see watch). FX thread only.
+class FrameMetrics {
+    private final Metrics.Timer pulseInterval = Metrics.timer(Metrics.JAVAFX, "pulseInterval");
+    private final Metrics.Timer layoutPass = Metrics.timer(Metrics.JAVAFX, "cssAndLayout");
+    private final AnimationTimer pulseTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            if (lastPulse != 0) {
+                pulseInterval.record(now - lastPulse);
+            }
+            lastPulse = now;
+        }
+    };
+    private long lastPulse;
+    private long layoutStart;
+    // Open windows showing the pulse intervals
+    private int watchers;
+
+    // Time the CSS and layout pass of scene on every pulse
+    void install(Scene scene) {
+        scene.addPreLayoutPulseListener(() -> layoutStart = System.nanoTime());
+        scene.addPostLayoutPulseListener(() -> layoutPass.record(System.nanoTime() - layoutStart));
+    }
+
+    // Measure pulse intervals until every watch is matched by an unwatch
+    void watch() {
+        if (watchers++ == 0) {
+            pulseTimer.start();
+        }
+    }
+
+    void unwatch() {
+        if (watchers > 0 && --watchers == 0) {
+            stop();
+        }
+    }
+
+    void stop() {
+        watchers = 0;
+        pulseTimer.stop();
+        lastPulse = 0;
+    }
+}
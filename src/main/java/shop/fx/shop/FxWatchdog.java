@@ -0,0 +1,156 @@
+package shop.fx.shop;
+import javafx.application.Platform;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+// Watches the JavaFX Application Thread for stalls. A daemon thread posts a heartbeat to the FX thread
+// every CHECK_INTERVAL_MILLIS; when one goes unanswered past the threshold, the FX thread's stack and
+// the operation marked in progress are written to a rolling log (fx-stalls.N.log in the working
+// directory). When the FX thread answers again the stall's length goes to the "stalls" timer in Metrics.
+// The one background thread not on the application executor: it must keep running when that executor
+// is saturated or shutting down, which is when stalls are most likely.
+final class FxWatchdog implements Runnable {
+    private static final String THRESHOLD_PROPERTY = "shop.stallThresholdMillis";
+    private static final long DEFAULT_THRESHOLD_MILLIS = 500;
+    private static final long CHECK_INTERVAL_MILLIS = 100;
+    private static final String LOG_PATTERN = "fx-stalls.%g.log";
+    private static final int LOG_FILE_BYTES = 1024 * 1024;
+    private static final int LOG_FILES = 3;
+    private static final Logger log = Logger.getLogger(FxWatchdog.class.getName());
+
+    // What the FX thread is doing, as marked by operation(); written on the FX thread only
+    private static volatile String currentOperation;
+
+    // Restores the previously marked operation when closed, so markers can nest
+    static final class Marker implements AutoCloseable {
+        private static final Marker NONE = new Marker(null);
+        private final String previous;
+
+        private Marker(String previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (this != NONE) {
+                currentOperation = previous;
+            }
+        }
+    }
+
+    private final Thread fxThread;
+    private final long thresholdNanos;
+    private final Metrics.Timer stalls = Metrics.timer(Metrics.JAVAFX, "stalls");
+    // Number of the last heartbeat the FX thread ran, and when it ran it (set before the number)
+    private volatile long answeredBeat;
+    private volatile long answeredAt;
+
+    private FxWatchdog(Thread fxThread, long thresholdMillis) {
+        this.fxThread = fxThread;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    }
+
+    // Start watching the FX thread; call on the FX thread. The threshold comes from the
+    // shop.stallThresholdMillis system property if set. Interrupt the returned thread to stop.
+    static Thread start() {
+        long thresholdMillis = Long.getLong(THRESHOLD_PROPERTY, DEFAULT_THRESHOLD_MILLIS);
+        Thread thread = new Thread(new FxWatchdog(Thread.currentThread(), thresholdMillis), "fx-watchdog");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    // Mark what the FX thread is about to do, for stall reports; close the marker when done:
+    //   try (var _ = FxWatchdog.operation("Login")) { ... }
+    // Markers set off the FX thread are ignored.
+    static Marker operation(String name) {
+        if (!Platform.isFxApplicationThread()) {
+            return Marker.NONE;
+        }
+        Marker marker = new Marker(currentOperation);
+        currentOperation = name;
+        return marker;
+    }
+
+    @Override
+    public void run() {
+        FileHandler logFile = openLog();
+        long sentBeat = 0;
+        long sentAt = 0;
+        boolean outstanding = false;
+        boolean reported = false;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                TimeUnit.MILLISECONDS.sleep(CHECK_INTERVAL_MILLIS);
+                long now = System.nanoTime();
+                if (outstanding && answeredBeat == sentBeat) {
+                    if (reported) {
+                        long stalledNanos = answeredAt - sentAt;
+                        stalls.record(stalledNanos);
+                        log.warning(String.format("FX thread responsive again after %d ms", TimeUnit.NANOSECONDS.toMillis(stalledNanos)));
+                        reported = false;
+                    }
+                    outstanding = false;
+                }
+                if (!outstanding) {
+                    long beat = ++sentBeat;
+                    sentAt = now;
+                    outstanding = true;
+                    Platform.runLater(() -> {
+                        answeredAt = System.nanoTime();
+                        answeredBeat = beat;
+                    });
+                } else if (!reported && now - sentAt >= thresholdNanos) {
+                    reportStall(now - sentAt);
+                    reported = true;
+                }
+            }
+        } catch (InterruptedException e) {
+            // Stopped by the application
+        } finally {
+            if (logFile != null) {
+                log.removeHandler(logFile);
+                logFile.close();
+            }
+        }
+    }
+
+    private void reportStall(long stalledNanos) {
+        String operation = currentOperation;
+        StringBuilder report = new StringBuilder();
+        report.append("FX thread stalled for ").append(TimeUnit.NANOSECONDS.toMillis(stalledNanos)).append(" ms");
+        report.append(operation != null ? " during \"" + operation + "\"" : " outside any marked operation");
+        for (StackTraceElement frame : fxThread.getStackTrace()) {
+            report.append(System.lineSeparator()).append("\tat ").append(frame);
+        }
+        log.warning(report.toString());
+        System.err.println("FX thread stalled" + (operation != null ? " during \"" + operation + "\"" : "") + ", see " + LOG_PATTERN);
+    }
+
+    // Send the watchdog's records to the rolling log files only. Without a log file (e.g. a read-only
+    // working directory) they go to the console instead.
+    private static FileHandler openLog() {
+        try {
+            FileHandler handler = new FileHandler(LOG_PATTERN, LOG_FILE_BYTES, LOG_FILES, true);
+            handler.setFormatter(new Formatter() {
+                @Override
+                public String format(LogRecord record) {
+                    return Instant.ofEpochMilli(record.getMillis()) + " " + record.getMessage() + System.lineSeparator();
+                }
+            });
+            log.addHandler(handler);
+            log.setUseParentHandlers(false);
+            log.setLevel(Level.INFO);
+            return handler;
+        } catch (IOException e) {
+            System.err.println("Stall log unavailable, reporting stalls to the console: " + e.getMessage());
+            return null;
+        }
+    }
+}
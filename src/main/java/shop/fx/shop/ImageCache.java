@@ -0,0 +1,81 @@
+package shop.fx.shop;
+import javafx.scene.image.Image;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// LRU cache of decoded product images keyed by product id and display size.
+// The bound is the estimated decoded size (4 bytes per pixel), not the entry count,
+// since a detail image costs several grid thumbnails.
+class ImageCache {
+    private static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    // Cache counters at one point in time
+    record Stats(long hits, long misses, long evictions, int entries, long bytes) {
+    }
+
+    private record Key(int productId, Thumbnails.Size size) {
+    }
+
+    private final long maxBytes;
+    private final Map<Key, Image> images = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    ImageCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    ImageCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    // Get a cached image, or null on a miss
+    synchronized Image get(int productId, Thumbnails.Size size) {
+        Image image = images.get(new Key(productId, size));
+        if (image != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return image;
+    }
+
+    synchronized void put(int productId, Thumbnails.Size size, Image image) {
+        long cost = cost(image);
+        if (cost > maxBytes) {
+            return; // Would evict everything else and still not fit
+        }
+        Image previous = images.put(new Key(productId, size), image);
+        if (previous != null) {
+            bytes -= cost(previous);
+        }
+        bytes += cost;
+        Iterator<Image> eldest = images.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= cost(eldest.next());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    // Drop every size of a product's image, e.g. after the product was removed
+    synchronized void invalidate(int productId) {
+        for (Thumbnails.Size size : Thumbnails.Size.values()) {
+            Image image = images.remove(new Key(productId, size));
+            if (image != null) {
+                bytes -= cost(image);
+            }
+        }
+    }
+
+    synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, images.size(), bytes);
+    }
+
+    private static long cost(Image image) {
+        return (long) image.getWidth() * (long) image.getHeight() * 4;
+    }
+}
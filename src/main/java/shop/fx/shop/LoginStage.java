@@ -6,15 +6,14 @@ import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
-import java.sql.SQLException;
 import java.util.function.Consumer;
 
 public class LoginStage extends Stage {
-    private final DatabaseManager db;
-    private final Consumer<User> onLoginSuccess;
+    private final AsyncDatabase db;
+    private final Consumer<Session> onLoginSuccess;
     private boolean isSignUpMode = false;
 
-    public LoginStage(DatabaseManager db, Consumer<User> onLoginSuccess) {
+    public LoginStage(AsyncDatabase db, Consumer<Session> onLoginSuccess) {
         this.db = db;
         this.onLoginSuccess = onLoginSuccess;
         setTitle("Login");
@@ -43,7 +42,7 @@ public class LoginStage extends Stage {
 
         Button actionButton = new Button("Login");
         actionButton.getStyleClass().add("action-button");
-        actionButton.setOnAction(e -> handleAction(usernameField.getText(), passwordField.getText(),
+        actionButton.setOnAction(e -> handleAction(actionButton, usernameField.getText(), passwordField.getText(),
                 emailField.getText()));
 
         Button toggleButton = new Button("Sign Up Instead");
@@ -55,13 +54,7 @@ public class LoginStage extends Stage {
                 actionButton, toggleButton);
 
         Scene scene = new Scene(root, 350, 350);
-        String cssPath = getClass().getResource("login-styles.css") != null ?
-                getClass().getResource("login-styles.css").toExternalForm() : null;
-        if (cssPath != null) {
-            scene.getStylesheets().add(cssPath);
-        } else {
-            System.err.println("Warning: login-styles.css not found");
-        }
+        UiAssets.addStylesheet(scene, "login-styles.css");
         setScene(scene);
     }
 
@@ -75,44 +68,58 @@ public class LoginStage extends Stage {
         root.setPrefHeight(isSignUpMode ? 400 : 350);
     }
 
-    private void handleAction(String username, String password, String email) {
+    // Sign up or log in in the background; the button stays disabled until the database answers
+    private void handleAction(Button actionButton, String username, String password, String email) {
         if (username.isEmpty() || password.isEmpty()) {
             showAlert(Alert.AlertType.ERROR, "Error", "Username and password are required.");
             return;
         }
 
-        try {
-            if (isSignUpMode) {
-                if (email.isEmpty()) {
-                    showAlert(Alert.AlertType.ERROR, "Error", "Email is required for sign-up.");
+        if (isSignUpMode) {
+            if (email.isEmpty()) {
+                showAlert(Alert.AlertType.ERROR, "Error", "Email is required for sign-up.");
+                return;
+            }
+            User user = new User(username, email, "User");
+            actionButton.setDisable(true);
+            db.addUser(user, password).whenComplete((_, failure) -> {
+                actionButton.setDisable(false);
+                if (failure != null) {
+                    showDatabaseError(failure);
                     return;
                 }
-                User user = new User(username, email, "User");
-                db.addUser(user, password);
                 showAlert(Alert.AlertType.INFORMATION, "Success", "User created successfully!");
                 VBox root = (VBox) getScene().getRoot();
                 toggleMode(root, (Label) root.getChildren().get(0),
                         (Button) root.getChildren().get(4),
                         (Button) root.getChildren().get(5),
                         (TextField) root.getChildren().get(3));
-            } else {
-                System.out.println("Attempting login for username: " + username);
-                User user = db.authenticate(username, password);
-                if (user != null) {
-                    System.out.println("Login successful for user: " + user.getUsername());
-                    onLoginSuccess.accept(user);
+            });
+        } else {
+            System.out.println("Attempting login for username: " + username);
+            actionButton.setDisable(true);
+            db.authenticate(username, password).whenComplete((session, failure) -> {
+                actionButton.setDisable(false);
+                if (failure != null) {
+                    showDatabaseError(failure);
+                } else if (session != null) {
+                    System.out.println("Login successful for user: " + session.user().getUsername());
+                    onLoginSuccess.accept(session);
                     close();
                 } else {
                     System.err.println("Authentication failed for username: " + username);
                     showAlert(Alert.AlertType.ERROR, "Error", "Invalid username or password.");
                 }
-            }
-        } catch (SQLException e) {
-            System.err.println("Database error during login: " + e.getMessage());
-            showAlert(Alert.AlertType.ERROR, "Database Error", e.getMessage());
+            });
         }
     }
 
+    private void showDatabaseError(Throwable failure) {
+        String message = AsyncDatabase.cause(failure).getMessage();
+        System.err.println("Database error during login: " + message);
+        showAlert(Alert.AlertType.ERROR, "Database Error", message);
+    }
+
     private void showAlert(Alert.AlertType type, String title, String message) {
         Alert alert = new Alert(type);
         alert.setTitle(title);
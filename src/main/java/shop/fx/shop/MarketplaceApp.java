@@ -1,61 +1,101 @@
 package shop.fx.shop;
 import javafx.scene.control.*;
+import javafx.animation.PauseTransition;
 import javafx.application.Application;
 import javafx.beans.value.ChangeListener;
-import javafx.concurrent.Task;
+import javafx.collections.FXCollections;
+import javafx.css.PseudoClass;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
-import javafx.scene.control.ScrollPane;
 import javafx.scene.control.TextField;
 import javafx.scene.image.Image;
-import javafx.scene.image.ImageView;
 import javafx.scene.layout.*;
-import javafx.scene.shape.Rectangle;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 import org.kordamp.ikonli.feather.Feather;
 import org.kordamp.ikonli.javafx.FontIcon;
-import javax.imageio.ImageIO;
-import java.awt.Graphics2D;
-import java.awt.Color;
-import java.awt.Font;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import atlantafx.base.theme.PrimerLight;
 
 public class MarketplaceApp extends Application {
     private DatabaseManager db;
-    private GridPane productsGrid;
+    private CatalogCache catalog;
+    private AsyncDatabase asyncDb;
+    private ProductImageLoader imageLoader;
+    private Future<?> thumbnailBackfill;
+    private Thread fxWatchdog;
+    private ProductGrid productsGrid;
     private TextField searchField;
     private CartManager cartManager;
-    private User loggedInUser;
+    private Session session;
+    private Image placeholderImage;
+    private final FrameMetrics frameMetrics = new FrameMetrics();
+
+    // Catalog paging state: last product shown (the cursor of the next page, null before the first),
+    // and a generation that invalidates in-flight pages on reload
+    private Product lastLoaded;
+    private int loadGeneration;
+    private boolean pageLoading;
+    private boolean catalogExhausted;
+    private boolean pagingEnabled;
+
+    // Live search: typing pause timer and the query currently running
+    private PauseTransition searchDebounce;
+    private QueryHandle runningSearch;
+
+    // Seller and price filters: the filter applied to listings and search results, and its input controls
+    private ProductFilter filter = ProductFilter.NONE;
+    private ComboBox<String> sellerFilter;
+    private TextField minPriceField;
+    private TextField maxPriceField;
+    private PauseTransition filterDebounce;
+
+    // All background work (database calls made through asyncDb, image loads, startup jobs, the thumbnail
+    // backfill), one virtual thread per task; stop() shuts it down before the database is closed.
+    // The FX watchdog is the only thread started elsewhere.
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("marketplace-", 0).factory());
 
-    private static final double PRODUCT_WIDTH = 250;
-    private static final double PRODUCT_HEIGHT = 300;
-    private static final double HORIZONTAL_GAP = 10;
-    private static final double VERTICAL_GAP = 10;
     private static final double LEFT_PADDING = 20;
     private static final double ImageHeight = 180;
+    private static final int PAGE_SIZE = 48;
+    private static final Duration RESIZE_DEBOUNCE = Duration.millis(150);
+    private static final Duration SEARCH_DEBOUNCE = Duration.millis(250);
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+    private static final String ALL_SELLERS = "All sellers";
+    private static final PseudoClass INVALID = PseudoClass.getPseudoClass("invalid");
 
     @Override
     public void start(Stage primaryStage) {
         Application.setUserAgentStylesheet(new PrimerLight().getUserAgentStylesheet());
         db = new DatabaseManager();
-        cartManager = new CartManager();
+        catalog = new CatalogCache(db);
+        asyncDb = new AsyncDatabase(db, catalog, executor);
+        imageLoader = new ProductImageLoader(db, executor);
+        registerCaches();
+        thumbnailBackfill = ThumbnailBackfill.start(db, executor);
+        cartManager = new CartManager(asyncDb, () -> session);
+        // Decode the icon, resolve stylesheets and render placeholders while the user logs in
+        UiAssets.warmUp(executor);
+        executor.execute(Metrics::registerMBeans);
+        fxWatchdog = FxWatchdog.start();
 
         primaryStage.setUserData(this); // Store app instance for access in UserProfileStage
 
-        primaryStage.getIcons().add(new Image(Objects.requireNonNull(getClass().getResourceAsStream("store.png"))));
+        primaryStage.getIcons().add(UiAssets.appIcon());
 
-        LoginStage loginStage = new LoginStage(db, user -> {
-            this.loggedInUser = user;
+        LoginStage loginStage = new LoginStage(asyncDb, session -> {
+            this.session = session;
             primaryStage.setTitle("Marketplace");
             primaryStage.setMinWidth(680);
             primaryStage.setMinHeight(420);
@@ -69,12 +109,53 @@ public class MarketplaceApp extends Application {
             loadProducts();
         });
         loginStage.show();
-        loginStage.getIcons().add(new Image(Objects.requireNonNull(getClass().getResourceAsStream("store.png"))));
+        loginStage.getIcons().add(UiAssets.appIcon());
     }
 
-    // Public method to update loggedInUser
-    public void setLoggedInUser(User user) {
-        this.loggedInUser = user;
+    // Report the prepared statement and image caches in Metrics, for JMX and the Diagnostics window
+    private void registerCaches() {
+        Metrics.cache("statements", () -> {
+            ConnectionPool.StatementCacheStats stats = db.getStatementCacheStats();
+            return new Metrics.CacheCounters(stats.hits(), stats.misses(), stats.evictions(), -1, -1);
+        });
+        Metrics.cache("images", () -> {
+            ImageCache.Stats stats = imageLoader.cacheStats();
+            return new Metrics.CacheCounters(stats.hits(), stats.misses(), stats.evictions(), stats.entries(), stats.bytes());
+        });
+    }
+
+    // Stop background work, then close the database once nothing can use it any more
+    @Override
+    public void stop() {
+        frameMetrics.stop();
+        if (fxWatchdog != null) {
+            fxWatchdog.interrupt();
+        }
+        cancelSearch();
+        if (thumbnailBackfill != null) {
+            thumbnailBackfill.cancel(true);
+        }
+        // Let running tasks finish, so a checkout or profile save in flight still reaches the database
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("Background tasks still running at shutdown");
+                executor.shutdownNow();
+            }
+            if (db != null) {
+                db.closeConnection();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        } catch (SQLException e) {
+            System.err.println("Error closing database: " + e.getMessage());
+        }
+    }
+
+    // Public method to update the signed-in session
+    void setSession(Session session) {
+        this.session = session;
     }
 
     // Create the root BorderPane
@@ -83,7 +164,7 @@ public class MarketplaceApp extends Application {
         root.setPadding(new Insets(10));
         root.getStyleClass().add("root-pane");
         root.setTop(createHeaderPane());
-        root.setCenter(createProductsScrollPane());
+        root.setCenter(createProductsGrid());
         return root;
     }
 
@@ -102,6 +183,10 @@ public class MarketplaceApp extends Application {
         searchField.setPromptText("Search products...");
         searchField.getStyleClass().add("search-field");
         searchField.setOnAction(_ -> searchProducts());
+        // Search as the user types, once typing pauses
+        searchDebounce = new PauseTransition(SEARCH_DEBOUNCE);
+        searchDebounce.setOnFinished(_ -> runSearch(searchField.getText().trim()));
+        searchField.textProperty().addListener((_, _, _) -> searchDebounce.playFromStart());
         HBox.setHgrow(searchField, Priority.ALWAYS);
 
         Button refreshButton = createStyledButton("", Feather.SEARCH, "refresh-button");
@@ -110,6 +195,8 @@ public class MarketplaceApp extends Application {
 
         searchFrame.getChildren().addAll(searchField, refreshButton);
 
+        HBox filterFrame = createFilterPane();
+
         Button cartButton = createStyledButton("", Feather.SHOPPING_CART, "cart-button");
         cartButton.setOnAction(_ -> cartManager.showCartStage());
 
@@ -118,23 +205,102 @@ public class MarketplaceApp extends Application {
         userMenu.setGraphic(new FontIcon(Feather.MENU));
         userMenu.getStyleClass().add("user-menu");
         MenuItem profileItem = new MenuItem("Profile");
-        profileItem.setOnAction(_ -> new UserProfileStage(db, loggedInUser).show());
+        profileItem.setOnAction(_ -> new UserProfileStage(asyncDb, session.user()).show());
         MenuItem addProductItem = new MenuItem("Add Product");
-        addProductItem.setOnAction(_ -> new AddProductStage(db, loggedInUser, (Stage) headerPane.getScene().getWindow(), this).show());
-        try {
-            if (db.isAdmin(loggedInUser.getId())) {
-                userMenu.getItems().add(addProductItem);
-            }
-        } catch (SQLException e) {
-            showErrorAlert("Error checking admin status: " + e.getMessage());
+        addProductItem.setOnAction(_ -> new AddProductStage(asyncDb, session, (Stage) headerPane.getScene().getWindow(), this).show());
+        if (session.can(Session.Permission.ADD_PRODUCT)) {
+            userMenu.getItems().add(addProductItem);
         }
         userMenu.getItems().add(profileItem);
+        if (session.can(Session.Permission.VIEW_DIAGNOSTICS)) {
+            MenuItem diagnosticsItem = new MenuItem("Diagnostics");
+            diagnosticsItem.setOnAction(_ -> new DiagnosticsStage(session, frameMetrics).show());
+            userMenu.getItems().add(diagnosticsItem);
+        }
 
-        headerPane.getChildren().addAll(searchFrame, cartButton, userMenu);
+        headerPane.getChildren().addAll(searchFrame, filterFrame, cartButton, userMenu);
         HBox.setHgrow(searchFrame, Priority.ALWAYS);
         return headerPane;
     }
 
+    // Create the seller and price range filters. The seller list is read again each time it opens,
+    // so sellers of newly added products show up.
+    private HBox createFilterPane() {
+        HBox filterFrame = new HBox(5);
+        filterFrame.getStyleClass().add("filter-frame");
+        filterFrame.setAlignment(Pos.CENTER_LEFT);
+
+        sellerFilter = new ComboBox<>(FXCollections.observableArrayList(ALL_SELLERS));
+        sellerFilter.getSelectionModel().selectFirst();
+        sellerFilter.getStyleClass().add("seller-filter");
+        sellerFilter.setOnShowing(_ -> loadSellers());
+        sellerFilter.setOnAction(_ -> applyFilter());
+
+        minPriceField = createPriceField("Min $");
+        maxPriceField = createPriceField("Max $");
+        filterDebounce = new PauseTransition(SEARCH_DEBOUNCE);
+        filterDebounce.setOnFinished(_ -> applyFilter());
+
+        filterFrame.getChildren().addAll(sellerFilter, minPriceField, new Label("-"), maxPriceField);
+        return filterFrame;
+    }
+
+    private TextField createPriceField(String prompt) {
+        TextField field = new TextField();
+        field.setPromptText(prompt);
+        field.getStyleClass().add("price-field");
+        field.textProperty().addListener((_, _, _) -> filterDebounce.playFromStart());
+        field.setOnAction(_ -> {
+            filterDebounce.stop();
+            applyFilter();
+        });
+        return field;
+    }
+
+    // Refresh the seller choices in the background, keeping the current selection
+    private void loadSellers() {
+        asyncDb.getSellers().whenComplete((sellers, failure) -> {
+            if (failure != null) {
+                showErrorAlert("Error loading sellers: " + AsyncDatabase.cause(failure).getMessage());
+                return;
+            }
+            String selected = sellerFilter.getValue();
+            List<String> choices = new ArrayList<>(sellers.size() + 1);
+            choices.add(ALL_SELLERS);
+            choices.addAll(sellers);
+            sellerFilter.getItems().setAll(choices);
+            sellerFilter.setValue(choices.contains(selected) ? selected : ALL_SELLERS);
+        });
+    }
+
+    // Read the filter controls and show the matching products, or the matching search results while searching
+    private void applyFilter() {
+        String seller = sellerFilter.getValue();
+        ProductFilter next = new ProductFilter(seller == null || seller.equals(ALL_SELLERS) ? null : seller,
+                parsePrice(minPriceField), parsePrice(maxPriceField));
+        if (next.equals(filter)) {
+            return;
+        }
+        filter = next;
+        runSearch(searchField.getText().trim());
+    }
+
+    // Price typed into a filter field, or null (no bound) when it is empty or not a number
+    private static Double parsePrice(TextField field) {
+        String text = field.getText().trim();
+        boolean valid = true;
+        Double price = null;
+        if (!text.isEmpty()) {
+            try {
+                price = Double.valueOf(text);
+            } catch (NumberFormatException e) {
+                valid = false;
+            }
+        }
+        field.pseudoClassStateChanged(INVALID, !valid);
+        return price;
+    }
+
     // Create a styled button with text, optional icon, and style class
     private Button createStyledButton(String text, Feather icon, String styleClass) {
         Button button = new Button(text);
@@ -147,187 +313,126 @@ public class MarketplaceApp extends Application {
         return button;
     }
 
-    // Create the ScrollPane containing the products grid
-    private ScrollPane createProductsScrollPane() {
-        productsGrid = new GridPane();
-        productsGrid.setHgap(HORIZONTAL_GAP);
-        productsGrid.setVgap(VERTICAL_GAP);
+    // Create the virtualized products grid
+    private ProductGrid createProductsGrid() {
+        if (placeholderImage == null) {
+            placeholderImage = UiAssets.placeholder(ProductCard.WIDTH, ImageHeight);
+        }
+        productsGrid = new ProductGrid(imageLoader, placeholderImage, cartManager::addToCart,
+                product -> new ProductDetailStage(product, (Stage) productsGrid.getScene().getWindow(), session, cartManager, asyncDb, catalog, imageLoader, this).show());
         productsGrid.setPadding(new Insets(10, 10, 10, 25));
-        productsGrid.getStyleClass().add("products-grid");
-
-        ScrollPane scrollPane = new ScrollPane(productsGrid);
-        scrollPane.setFitToWidth(true);
-        scrollPane.getStyleClass().add("products-scroll-pane");
-        return scrollPane;
+        // Fetch the next page once the user scrolls close to the bottom
+        productsGrid.setOnNearEnd(this::loadNextPage);
+        return productsGrid;
     }
 
     // Create the main scene with CSS
     Scene createScene(BorderPane root) {
         Scene scene = new Scene(root, 1100, 600);
-        String cssPath = getClass().getResource("styles.css") != null ?
-                Objects.requireNonNull(getClass().getResource("styles.css")).toExternalForm() : null;
-        if (cssPath != null) {
-            scene.getStylesheets().add(cssPath);
-        } else {
-            System.err.println("Warning: styles.css not found");
-        }
+        UiAssets.addStylesheet(scene, "styles.css");
+        frameMetrics.install(scene);
         return scene;
     }
 
-    // Setup window resize listener
+    // Setup window resize listener: once the width settles, regroup the loaded products into columns.
+    // This is a pure re-layout and never queries the database.
     private void setupResizeListener(Stage stage) {
-        ChangeListener<Number> resizeListener = (_, _, _) -> loadProducts();
+        PauseTransition debounce = new PauseTransition(RESIZE_DEBOUNCE);
+        debounce.setOnFinished(_ -> productsGrid.setColumns(columnCount()));
+        ChangeListener<Number> resizeListener = (_, _, _) -> debounce.playFromStart();
         stage.widthProperty().addListener(resizeListener);
     }
 
-    // Create a product pane for display
-    private VBox createProductPane(Product product) {
-        VBox pane = new VBox(10);
-        pane.setPrefSize(PRODUCT_WIDTH, PRODUCT_HEIGHT);
-        pane.setMaxSize(PRODUCT_WIDTH, PRODUCT_HEIGHT);
-        pane.getStyleClass().add("product-frame");
-        pane.setAlignment(Pos.TOP_CENTER);
-
-        VBox imageBox = new VBox();
-        imageBox.setPrefHeight(ImageHeight);
-        imageBox.setAlignment(Pos.TOP_CENTER);
-        ImageView imageView = createProductImage(product);
-        imageBox.getChildren().add(imageView);
-
-        Label nameLabel = createProductLabel(product.getName(), "product-name");
-        Label descLabel = createProductDescriptionLabel(product.getDescription());
-        Label priceLabel = createProductLabel(String.format("$%.2f", product.getPrice()), "product-price");
-        Button addToCartButton = createStyledButton("", Feather.PLUS, "add-to-cart-button");
-        addToCartButton.setAlignment(Pos.CENTER);
-        addToCartButton.setOnAction(_ -> cartManager.addToCart(product));
-
-        HBox priceAndButtonBox = new HBox(10);
-        priceAndButtonBox.setAlignment(Pos.CENTER);
-        priceAndButtonBox.getChildren().addAll(priceLabel, addToCartButton);
-
-        pane.getChildren().addAll(imageBox, nameLabel, descLabel, priceAndButtonBox);
-        setupProductPaneInteractions(pane, product);
-        return pane;
+    // Load products from the catalog cache, starting again from the newest page
+    public void loadProducts() {
+        cancelSearch();
+        loadGeneration++;
+        lastLoaded = null;
+        pageLoading = false;
+        catalogExhausted = false;
+        pagingEnabled = true;
+        layoutProducts(List.of());
+        loadNextPage();
     }
 
-    // Create product image
-    private ImageView createProductImage(Product product) {
-        ImageView imageView = new ImageView();
-        imageView.setFitWidth(PRODUCT_WIDTH);
-        imageView.setFitHeight(ImageHeight);
-        imageView.setPreserveRatio(true);
-        imageView.setSmooth(true);
-        // Create a rectangle with rounded top corners
-        Rectangle clip = new Rectangle(PRODUCT_WIDTH, ImageHeight);
-        clip.setArcWidth(20); // Corner radius
-        clip.setArcHeight(20);
-        clip.setY(0);
-        clip.setHeight(ImageHeight);
-        imageView.setClip(clip);
-
-        if (product.getImage() != null) {
-            try {
-                Image image = new Image(new ByteArrayInputStream(product.getImage()));
-                imageView.setImage(image);
-            } catch (Exception e) {
-                imageView.setImage(createPlaceholderImage(PRODUCT_WIDTH, ImageHeight));
-            }
-        } else {
-            imageView.setImage(createPlaceholderImage(PRODUCT_WIDTH, ImageHeight));
+    // Fetch the next page in the background and append it to the grid: the newest products from the
+    // catalog cache, or with a filter set, the cheapest matching products from the database
+    private void loadNextPage() {
+        if (!pagingEnabled || pageLoading || catalogExhausted) {
+            return;
         }
-        return imageView;
-    }
-
-    // Create a styled label
-    private Label createProductLabel(String text, String styleClass) {
-        Label label = new Label(text);
-        label.getStyleClass().add(styleClass);
-        return label;
-    }
-
-    // Create product description label with truncation
-    private Label createProductDescriptionLabel(String description) {
-        String desc = description != null ? description : "";
-        if (desc.length() > 50) desc = desc.substring(0, 47) + "...";
-        return createProductLabel(desc, "product-description");
+        pageLoading = true;
+        int generation = loadGeneration;
+        Product after = lastLoaded;
+        ProductFilter pageFilter = filter;
+        CompletableFuture<List<Product>> nextPage = pageFilter.isEmpty()
+                ? asyncDb.getPage(after == null ? DatabaseManager.FIRST_PAGE : after.getId(), PAGE_SIZE)
+                : asyncDb.getFilteredProducts(pageFilter, after, PAGE_SIZE);
+        nextPage.whenComplete((page, failure) -> {
+            if (generation != loadGeneration) {
+                return; // A newer load or search replaced this one
+            }
+            pageLoading = false;
+            if (failure != null) {
+                showErrorAlert("Error loading products: " + AsyncDatabase.cause(failure).getMessage());
+                return;
+            }
+            catalogExhausted = page.size() < PAGE_SIZE;
+            if (!page.isEmpty()) {
+                lastLoaded = page.getLast();
+                productsGrid.appendProducts(page);
+            }
+        });
     }
 
-    // Setup product pane hover and click interactions
-    private void setupProductPaneInteractions(VBox pane, Product product) {
-        pane.setOnMouseEntered(_ -> pane.getStyleClass().add("product-frame-hover"));
-        pane.setOnMouseExited(_ -> pane.getStyleClass().remove("product-frame-hover"));
-        pane.setOnMouseClicked(_ -> new ProductDetailStage(product, (Stage) pane.getScene().getWindow(), loggedInUser, cartManager, db , this).show());
+    // Search products based on query, now instead of after the typing pause
+    private void searchProducts() {
+        searchDebounce.stop();
+        runSearch(searchField.getText().trim());
     }
 
-    // Load products from database
-    public void loadProducts() {
-        Task<List<Product>> task = new Task<>() {
-            @Override
-            protected List<Product> call() throws SQLException {
-                return db.getAllProducts();
+    // Run a search in the background. Starting another search or load cancels this one,
+    // and only the newest request's results reach the grid.
+    private void runSearch(String query) {
+        cancelSearch();
+        if (query.isEmpty()) {
+            loadProducts();
+            return;
+        }
+        loadGeneration++;
+        pagingEnabled = false;
+        int generation = loadGeneration;
+        QueryHandle handle = new QueryHandle();
+        runningSearch = handle;
+        asyncDb.searchProducts(query, filter, handle).whenComplete((results, failure) -> {
+            if (generation != loadGeneration) {
+                return;
             }
-        };
-        task.setOnSucceeded(_ -> layoutProducts(task.getValue()));
-        task.setOnFailed(_ -> showErrorAlert("Error loading products: " + task.getException().getMessage()));
-        new Thread(task).start();
+            if (failure == null) {
+                layoutProducts(results);
+            } else if (!handle.isCancelled()) {
+                showErrorAlert("Error searching products: " + AsyncDatabase.cause(failure).getMessage());
+            }
+        });
     }
 
-    // Search products based on query
-    private void searchProducts() {
-        System.out.println("Searching for: " + searchField.getText());
-        try {
-            String query = searchField.getText().trim();
-            if (query.isEmpty()) {
-                loadProducts();
-            } else {
-                List<Product> products = db.searchProducts(query);
-                layoutProducts(products);
-            }
-        } catch (SQLException e) {
-            showErrorAlert("Error searching products: " + e.getMessage());
+    private void cancelSearch() {
+        if (runningSearch != null) {
+            runningSearch.cancel();
+            runningSearch = null;
         }
     }
 
     // Layout products in the grid
     private void layoutProducts(List<Product> products) {
-        productsGrid.getChildren().clear();
-        double paneWidth = productsGrid.getScene() != null ? productsGrid.getScene().getWidth() - 40 : 900;
-        int columns = Math.max(1, (int) ((paneWidth - LEFT_PADDING) / (PRODUCT_WIDTH + HORIZONTAL_GAP)));
-        int col = 0;
-        int row = 0;
-
-        for (Product product : products) {
-            productsGrid.add(createProductPane(product), col, row);
-            col++;
-            if (col >= columns) {
-                col = 0;
-                row++;
-            }
-        }
-    }
-
-    // Create placeholder image
-    private Image createPlaceholderImage(double width, double height) {
-        BufferedImage img = new BufferedImage((int) width, (int) height, BufferedImage.TYPE_INT_RGB);
-        Graphics2D g = img.createGraphics();
-        g.setColor(new Color(0xE0E0E0));
-        g.fillRect(0, 0, (int) width, (int) height);
-        g.setColor(new Color(0x999999));
-        g.setFont(new Font("Segoe UI", Font.PLAIN, 20));
-        g.drawString("No Image", (int) width / 2 - 40, (int) height / 2);
-        g.dispose();
-        return new Image(imgToInputStream(img));
+        productsGrid.setColumns(columnCount());
+        productsGrid.setProducts(products);
     }
 
-    // Convert BufferedImage to InputStream
-    private ByteArrayInputStream imgToInputStream(BufferedImage img) {
-        try {
-            java.io.ByteArrayOutputStream os = new java.io.ByteArrayOutputStream();
-            ImageIO.write(img, "png", os);
-            return new ByteArrayInputStream(os.toByteArray());
-        } catch (IOException e) {
-            return null;
-        }
+    // Number of product columns that fit the current window width
+    private int columnCount() {
+        double paneWidth = productsGrid.getScene() != null ? productsGrid.getScene().getWidth() - 40 : 900;
+        return Math.max(1, (int) ((paneWidth - LEFT_PADDING) / (ProductCard.WIDTH + ProductGrid.HORIZONTAL_GAP)));
     }
 
     // Show error alert
@@ -0,0 +1,321 @@
+package shop.fx.shop;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Process-wide timers for database operations and JavaFX frames. Recording is a handful of LongAdder
+// increments, so timers stay on in normal use; the Diagnostics window and JMX read them. Caches
+// registered here keep their own counters and are read through them on demand.
+final class Metrics {
+    static final String DATABASE = "Database";
+    static final String JAVAFX = "JavaFX";
+    private static final String DOMAIN = "shop.fx.shop";
+    private static final String CACHE_TYPE = "Cache";
+    // Bucket upper bounds in milliseconds; a last bucket holds everything slower
+    private static final double[] BUCKET_BOUNDS_MILLIS = {0.1, 0.25, 0.5, 1, 2.5, 5, 10, 25, 50, 100, 250, 500, 1000};
+    private static final long[] BUCKET_BOUNDS_NANOS = new long[BUCKET_BOUNDS_MILLIS.length];
+
+    static {
+        for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+            BUCKET_BOUNDS_NANOS[i] = Math.round(BUCKET_BOUNDS_MILLIS[i] * 1e6);
+        }
+    }
+
+    // Sorted by group and name, the order the Diagnostics window lists them in
+    private static final Map<String, Timer> timers = new ConcurrentSkipListMap<>();
+    // Sorted by name
+    private static final Map<String, Cache> caches = new ConcurrentSkipListMap<>();
+    // Set once registerMBeans has run; timers and caches added afterwards register themselves
+    private static volatile MBeanServer mbeanServer;
+
+    // Count, total, maximum and bucketed durations of one operation, plus what it returned
+    static final class Timer implements OperationTimerMXBean {
+        private final String group;
+        private final String name;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder blobBytes = new LongAdder();
+        private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_NANOS.length + 1];
+
+        private Timer(String group, String name) {
+            this.group = group;
+            this.name = name;
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        String group() {
+            return group;
+        }
+
+        String name() {
+            return name;
+        }
+
+        void record(long nanos) {
+            record(nanos, 0, 0);
+        }
+
+        // One successful call that took nanos and returned rows rows holding blobBytes bytes of BLOBs
+        void record(long nanos, long rows, long blobBytes) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            buckets[bucket(nanos)].increment();
+            if (rows > 0) this.rows.add(rows);
+            if (blobBytes > 0) this.blobBytes.add(blobBytes);
+        }
+
+        // A call that threw; its time is not mixed into the durations of successful calls
+        void recordFailure() {
+            failures.increment();
+        }
+
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+
+        @Override
+        public long getFailures() {
+            return failures.sum();
+        }
+
+        @Override
+        public double getTotalMillis() {
+            return totalNanos.sum() / 1e6;
+        }
+
+        @Override
+        public double getMeanMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : totalNanos.sum() / 1e6 / n;
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return maxNanos.get() / 1e6;
+        }
+
+        @Override
+        public double getP99Millis() {
+            long[] counts = getBucketCounts();
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            long target = (long) Math.ceil(total * 0.99);
+            long seen = 0;
+            for (int i = 0; i < counts.length && total > 0; i++) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return i < BUCKET_BOUNDS_MILLIS.length ? BUCKET_BOUNDS_MILLIS[i] : getMaxMillis();
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public long getRows() {
+            return rows.sum();
+        }
+
+        @Override
+        public long getBlobBytes() {
+            return blobBytes.sum();
+        }
+
+        @Override
+        public double[] getBucketBoundsMillis() {
+            return BUCKET_BOUNDS_MILLIS.clone();
+        }
+
+        @Override
+        public long[] getBucketCounts() {
+            long[] counts = new long[buckets.length];
+            for (int i = 0; i < buckets.length; i++) {
+                counts[i] = buckets[i].sum();
+            }
+            return counts;
+        }
+
+        @Override
+        public void reset() {
+            count.reset();
+            failures.reset();
+            totalNanos.reset();
+            maxNanos.reset();
+            rows.reset();
+            blobBytes.reset();
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+        }
+
+        private static int bucket(long nanos) {
+            int i = 0;
+            while (i < BUCKET_BOUNDS_NANOS.length && nanos > BUCKET_BOUNDS_NANOS[i]) {
+                i++;
+            }
+            return i;
+        }
+    }
+
+    // Counters of a cache at one point in time; entries and bytes are -1 where the cache does not track them
+    record CacheCounters(long hits, long misses, long evictions, long entries, long bytes) {
+    }
+
+    // A named cache whose counters are read when asked for
+    static final class Cache implements CacheMXBean {
+        private final String name;
+        private final Supplier<CacheCounters> counters;
+
+        private Cache(String name, Supplier<CacheCounters> counters) {
+            this.name = name;
+            this.counters = counters;
+        }
+
+        String name() {
+            return name;
+        }
+
+        // All counters read together, so they agree with each other
+        CacheCounters counters() {
+            return counters.get();
+        }
+
+        @Override
+        public long getHits() {
+            return counters().hits();
+        }
+
+        @Override
+        public long getMisses() {
+            return counters().misses();
+        }
+
+        @Override
+        public double getHitRatio() {
+            return hitRatio(counters());
+        }
+
+        @Override
+        public long getEvictions() {
+            return counters().evictions();
+        }
+
+        @Override
+        public long getEntries() {
+            return counters().entries();
+        }
+
+        @Override
+        public long getBytes() {
+            return counters().bytes();
+        }
+
+        static double hitRatio(CacheCounters counters) {
+            long lookups = counters.hits() + counters.misses();
+            return lookups == 0 ? 0 : (double) counters.hits() / lookups;
+        }
+    }
+
+    private Metrics() {
+    }
+
+    // The timer of an operation, created on first use
+    static Timer timer(String group, String name) {
+        Timer timer = timers.get(group + '/' + name);
+        if (timer != null) {
+            return timer;
+        }
+        Timer created = new Timer(group, name);
+        timer = timers.putIfAbsent(group + '/' + name, created);
+        if (timer != null) {
+            return timer;
+        }
+        MBeanServer server = mbeanServer;
+        if (server != null) {
+            register(server, created.group, created.name, created, false);
+        }
+        return created;
+    }
+
+    static List<Timer> timers() {
+        return new ArrayList<>(timers.values());
+    }
+
+    // Report a cache's counters under name, replacing any cache registered under it before
+    static void cache(String name, Supplier<CacheCounters> counters) {
+        Cache cache = new Cache(name, counters);
+        caches.put(name, cache);
+        MBeanServer server = mbeanServer;
+        if (server != null) {
+            register(server, CACHE_TYPE, name, cache, true);
+        }
+    }
+
+    static List<Cache> caches() {
+        return new ArrayList<>(caches.values());
+    }
+
+    static void resetAll() {
+        for (Timer timer : timers.values()) {
+            timer.reset();
+        }
+    }
+
+    // Publish every timer over JMX, now and as they are created. Starting the platform MBean server
+    // takes a while, so call this off the FX thread.
+    static synchronized void registerMBeans() {
+        if (mbeanServer != null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        mbeanServer = server;
+        for (Timer timer : timers.values()) {
+            register(server, timer.group, timer.name, timer, false);
+        }
+        for (Cache cache : caches.values()) {
+            register(server, CACHE_TYPE, cache.name, cache, true);
+        }
+    }
+
+    // Rows in a value returned by a timed operation: the size of a list, otherwise 1 for any value
+    static long rowsOf(Object result) {
+        if (result instanceof List<?> list) return list.size();
+        return result == null ? 0 : 1;
+    }
+
+    static long blobBytesOf(Object result) {
+        return result instanceof byte[] bytes ? bytes.length : 0;
+    }
+
+    // Register mbean as type and name; replace swaps out a bean already registered there
+    private static synchronized void register(MBeanServer server, String type, String name, Object mbean, boolean replace) {
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=" + type + ",name=" + name);
+            if (replace && server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(mbean, objectName);
+        } catch (InstanceAlreadyExistsException e) {
+            // Registered by registerMBeans and timer at the same time
+        } catch (JMException e) {
+            System.err.println("Could not register metrics for " + name + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package shop.fx.shop;
+
+// JMX view of one Metrics.Timer, registered as shop.fx.shop:type=<group>,name=<operation>.
+// Public because JMX only introspects public interfaces.
+public interface OperationTimerMXBean {
+    long getCount();
+
+    long getFailures();
+
+    double getTotalMillis();
+
+    double getMeanMillis();
+
+    double getMaxMillis();
+
+    // Upper bound of the bucket holding the 99th percentile, an estimate to within one bucket
+    double getP99Millis();
+
+    long getRows();
+
+    long getBlobBytes();
+
+    // Upper bounds of the buckets; getBucketCounts has one more entry, for values above the last bound
+    double[] getBucketBoundsMillis();
+
+    long[] getBucketCounts();
+
+    void reset();
+}
@@ -0,0 +1,111 @@
+package shop.fx.shop;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.scene.shape.Rectangle;
+import org.kordamp.ikonli.feather.Feather;
+import org.kordamp.ikonli.javafx.FontIcon;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+// Reusable product card for the grid. Nodes are built once; show() rebinds the card to another product.
+class ProductCard extends VBox {
+    static final double WIDTH = 250;
+    static final double HEIGHT = 300;
+    private static final double IMAGE_HEIGHT = 180;
+
+    private final ProductImageLoader imageLoader;
+    private final Image placeholder;
+    private final ImageView imageView = new ImageView();
+    private final Label nameLabel = new Label();
+    private final Label descLabel = new Label();
+    private final Label priceLabel = new Label();
+    private Product product;
+    // Image load for the product shown, cancelled when the card is recycled before it finishes
+    private Future<Image> pendingImage;
+
+    ProductCard(ProductImageLoader imageLoader, Image placeholder, Consumer<Product> onAddToCart, Consumer<Product> onOpen) {
+        super(10);
+        this.imageLoader = imageLoader;
+        this.placeholder = placeholder;
+        setPrefSize(WIDTH, HEIGHT);
+        setMaxSize(WIDTH, HEIGHT);
+        getStyleClass().add("product-frame");
+        setAlignment(Pos.TOP_CENTER);
+
+        imageView.setFitWidth(WIDTH);
+        imageView.setFitHeight(IMAGE_HEIGHT);
+        imageView.setPreserveRatio(true);
+        imageView.setSmooth(true);
+        // Create a rectangle with rounded top corners
+        Rectangle clip = new Rectangle(WIDTH, IMAGE_HEIGHT);
+        clip.setArcWidth(20); // Corner radius
+        clip.setArcHeight(20);
+        imageView.setClip(clip);
+        VBox imageBox = new VBox(imageView);
+        imageBox.setPrefHeight(IMAGE_HEIGHT);
+        imageBox.setAlignment(Pos.TOP_CENTER);
+
+        nameLabel.getStyleClass().add("product-name");
+        descLabel.getStyleClass().add("product-description");
+        priceLabel.getStyleClass().add("product-price");
+
+        Button addToCartButton = new Button("");
+        FontIcon icon = new FontIcon(Feather.PLUS);
+        icon.getStyleClass().add("button-icon");
+        addToCartButton.setGraphic(icon);
+        addToCartButton.getStyleClass().addAll("rounded-button", "add-to-cart-button");
+        addToCartButton.setAlignment(Pos.CENTER);
+        addToCartButton.setOnAction(_ -> onAddToCart.accept(product));
+
+        HBox priceAndButtonBox = new HBox(10, priceLabel, addToCartButton);
+        priceAndButtonBox.setAlignment(Pos.CENTER);
+
+        getChildren().addAll(imageBox, nameLabel, descLabel, priceAndButtonBox);
+        setOnMouseEntered(_ -> getStyleClass().add("product-frame-hover"));
+        setOnMouseExited(_ -> getStyleClass().remove("product-frame-hover"));
+        setOnMouseClicked(_ -> onOpen.accept(product));
+    }
+
+    // Bind the card to a product; the image arrives asynchronously unless it is cached
+    void show(Product product) {
+        if (product == this.product) {
+            return;
+        }
+        cancelImage();
+        this.product = product;
+        nameLabel.setText(product.getName());
+        descLabel.setText(truncate(product.getDescription()));
+        priceLabel.setText(String.format("$%.2f", product.getPrice()));
+        imageView.setImage(placeholder);
+        pendingImage = imageLoader.load(product, Thumbnails.Size.GRID, image -> {
+            if (image != null) {
+                imageView.setImage(image);
+            }
+        });
+    }
+
+    // Unbind the card when its cell no longer shows it
+    void clear() {
+        cancelImage();
+        product = null;
+    }
+
+    private void cancelImage() {
+        if (pendingImage != null) {
+            pendingImage.cancel(false);
+            pendingImage = null;
+        }
+    }
+
+    // Product description with truncation
+    private static String truncate(String description) {
+        String desc = description != null ? description : "";
+        if (desc.length() > 50) desc = desc.substring(0, 47) + "...";
+        return desc;
+    }
+}
@@ -2,6 +2,7 @@ package shop.fx.shop;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.ScrollPane;
@@ -9,23 +10,21 @@ import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.*;
 import javafx.stage.Stage;
-import java.awt.*;
-import java.io.ByteArrayInputStream;
-import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.sql.SQLException;
-import javax.imageio.ImageIO;
 import javafx.scene.control.TextArea;
+import java.util.concurrent.Future;
 // Product detail page
 public class ProductDetailStage extends Stage {
     private static final double WINDOW_WIDTH = 600;
     private static final double WINDOW_HEIGHT = 700;
 
-    public ProductDetailStage(Product product, Stage parent, User loggedInUser, CartManager cartManager, DatabaseManager db , MarketplaceApp marketplaceApp) {
+    public ProductDetailStage(Product selected, Stage parent, Session session, CartManager cartManager, AsyncDatabase db, CatalogCache catalog, ProductImageLoader imageLoader, MarketplaceApp marketplaceApp) {
+        // Show the latest cached version of the product if the catalog has it
+        Product cached = catalog.get(selected.getId());
+        Product product = cached != null ? cached : selected;
         setTitle(product.getName());
         setMinWidth(400);
         setMinHeight(500);
-        this.getIcons().add(new Image(getClass().getResourceAsStream("store.png")));
+        this.getIcons().add(UiAssets.appIcon());
         BorderPane root = new BorderPane();
         root.setPadding(new Insets(0)); // Removed padding
         root.setStyle("-fx-background-color: #F5F5F5;");
@@ -35,16 +34,14 @@ public class ProductDetailStage extends Stage {
         imageView.setFitWidth(WINDOW_WIDTH);
         imageView.setFitHeight(300);
         imageView.setPreserveRatio(false); // Set to false to fit the image to the specified height
-        if (product.getImage() != null) {
-            try {
-                Image image = new Image(new ByteArrayInputStream(product.getImage()));
+        imageView.setImage(UiAssets.placeholder(WINDOW_WIDTH, 300));
+        Future<Image> pendingImage = imageLoader.load(product, Thumbnails.Size.DETAIL, image -> {
+            if (image != null) {
                 imageView.setImage(image);
-            } catch (Exception e) {
-                imageView.setImage(createPlaceholderImage(WINDOW_WIDTH, 300));
             }
-        } else {
-            imageView.setImage(createPlaceholderImage(WINDOW_WIDTH, 300));
-        }
+        });
+        // Closed before the image arrived: stop loading it
+        setOnHidden(_ -> pendingImage.cancel(false));
 
         // Details
         Label nameLabel = new Label(product.getName());
@@ -73,23 +70,27 @@ public class ProductDetailStage extends Stage {
         addToCartButton.setOnAction(e -> cartManager.addToCart(product));
 
         Button removeProductButton = null;
-        try {
-            if (db.isAdmin(loggedInUser.getId())) {
-                removeProductButton = new Button("Remove Product");
-                removeProductButton.setStyle("-fx-background-color: #DC3545; -fx-text-fill: white; -fx-font-family: 'Segoe UI'; -fx-font-size: 14; -fx-background-radius: 8;");
-                removeProductButton.setOnAction(e -> {
-                    // Remove product logic
-                    try {
-                        db.removeProduct(product.getId());
-                        marketplaceApp.loadProducts();
-                        close();
-                    } catch (SQLException ex) {
-                        // Handle exception
+        if (session.can(Session.Permission.REMOVE_PRODUCT)) {
+            removeProductButton = new Button("Remove Product");
+            removeProductButton.setStyle("-fx-background-color: #DC3545; -fx-text-fill: white; -fx-font-family: 'Segoe UI'; -fx-font-size: 14; -fx-background-radius: 8;");
+            Button removeButton = removeProductButton;
+            removeProductButton.setOnAction(e -> {
+                removeButton.setDisable(true);
+                db.removeProduct(product.getId()).whenComplete((_, failure) -> {
+                    removeButton.setDisable(false);
+                    if (failure != null) {
+                        Alert alert = new Alert(Alert.AlertType.ERROR);
+                        alert.setTitle("Remove Product");
+                        alert.setHeaderText(null);
+                        alert.setContentText("Could not remove the product: " + AsyncDatabase.cause(failure).getMessage());
+                        alert.showAndWait();
+                        return;
                     }
+                    imageLoader.invalidate(product.getId());
+                    marketplaceApp.loadProducts();
+                    close();
                 });
-            }
-        } catch (SQLException e) {
-            // Handle exception
+            });
         }
 
         HBox buttonsPane = new HBox(10);
@@ -106,28 +107,10 @@ public class ProductDetailStage extends Stage {
         root.setBottom(buttonsPane);
 
         Scene scene = new Scene(root, WINDOW_WIDTH, WINDOW_HEIGHT);
-        scene.getStylesheets().add(getClass().getResource("styles.css").toExternalForm());
+        UiAssets.addStylesheet(scene, "styles.css");
         setScene(scene);
         initOwner(parent);
         setX(parent.getX() + (parent.getWidth() - WINDOW_WIDTH) / 2);
         setY(parent.getY() + (parent.getHeight() - WINDOW_HEIGHT) / 2);
     }
-
-    private Image createPlaceholderImage(double width, double height) {
-        BufferedImage img = new BufferedImage((int) width, (int) height, BufferedImage.TYPE_INT_RGB);
-        Graphics2D g = img.createGraphics();
-        g.setColor(new Color(0xE0E0E0));
-        g.fillRect(0, 0, (int) width, (int) height);
-        g.setColor(new Color(0x999999));
-        g.setFont(new Font("Segoe UI", Font.PLAIN, 20));
-        g.drawString("No Image", (int) width / 2 - 40, (int) height / 2);
-        g.dispose();
-        try {
-            java.io.ByteArrayOutputStream os = new java.io.ByteArrayOutputStream();
-            ImageIO.write(img, "png", os);
-            return new Image(new ByteArrayInputStream(os.toByteArray()));
-        } catch (IOException e) {
-            return null;
-        }
-    }
-}
\ No newline at end of file
+}
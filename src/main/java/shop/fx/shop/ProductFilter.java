@@ -0,0 +1,10 @@
+package shop.fx.shop;
+
+// Seller and price range the product list is narrowed to. Null fields do not filter.
+record ProductFilter(String seller, Double minPrice, Double maxPrice) {
+    static final ProductFilter NONE = new ProductFilter(null, null, null);
+
+    boolean isEmpty() {
+        return seller == null && minPrice == null && maxPrice == null;
+    }
+}
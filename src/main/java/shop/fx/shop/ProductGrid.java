@@ -0,0 +1,133 @@
+package shop.fx.shop;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.image.Image;
+import javafx.scene.layout.HBox;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Virtualized product grid: a ListView whose items are rows of products. The ListView only creates
+// cells for the rows in the viewport, and each cell reuses its ProductCard nodes as it is scrolled
+// onto other rows, so the scene graph stays the same size however many products are loaded.
+class ProductGrid extends ListView<List<Product>> {
+    static final double HORIZONTAL_GAP = 10;
+    static final double VERTICAL_GAP = 10;
+    // Rows left below the viewport when onNearEnd asks for more products
+    private static final int NEAR_END_ROWS = 2;
+
+    private final ProductImageLoader imageLoader;
+    private final Image placeholder;
+    private final Consumer<Product> onAddToCart;
+    private final Consumer<Product> onOpen;
+    // Immutable snapshot of every loaded product; re-layouts regroup it without touching the database
+    private List<Product> products = List.of();
+    private final ObservableList<List<Product>> rows = FXCollections.observableArrayList();
+    private int columns = 1;
+    private Runnable onNearEnd = () -> {};
+
+    ProductGrid(ProductImageLoader imageLoader, Image placeholder, Consumer<Product> onAddToCart, Consumer<Product> onOpen) {
+        this.imageLoader = imageLoader;
+        this.placeholder = placeholder;
+        this.onAddToCart = onAddToCart;
+        this.onOpen = onOpen;
+        setItems(rows);
+        setFixedCellSize(ProductCard.HEIGHT + VERTICAL_GAP);
+        setFocusTraversable(false);
+        getStyleClass().add("products-grid");
+        setCellFactory(_ -> new RowCell());
+    }
+
+    // Called when a row close to the end of the loaded products becomes visible
+    void setOnNearEnd(Runnable onNearEnd) {
+        this.onNearEnd = onNearEnd;
+    }
+
+    // Replace all products
+    void setProducts(List<Product> products) {
+        this.products = List.copyOf(products);
+        rebuildRows();
+        scrollTo(0);
+    }
+
+    // Add products after the ones already shown, filling up the last row first
+    void appendProducts(List<Product> more) {
+        int start = products.size();
+        List<Product> next = new ArrayList<>(start + more.size());
+        next.addAll(products);
+        next.addAll(more);
+        products = List.copyOf(next);
+        if (start % columns != 0) {
+            int lastRow = rows.size() - 1;
+            rows.set(lastRow, row(lastRow * columns));
+            start = rows.size() * columns;
+        }
+        List<List<Product>> added = new ArrayList<>();
+        for (int i = start; i < products.size(); i += columns) {
+            added.add(row(i));
+        }
+        rows.addAll(added);
+    }
+
+    // Regroup the current snapshot into rows of the given width
+    void setColumns(int columns) {
+        if (columns != this.columns) {
+            this.columns = Math.max(1, columns);
+            rebuildRows();
+        }
+    }
+
+    private void rebuildRows() {
+        List<List<Product>> rebuilt = new ArrayList<>();
+        for (int i = 0; i < products.size(); i += columns) {
+            rebuilt.add(row(i));
+        }
+        rows.setAll(rebuilt);
+    }
+
+    // Views of an immutable list are immutable too, so rows need no copy
+    private List<Product> row(int start) {
+        return products.subList(start, Math.min(start + columns, products.size()));
+    }
+
+    private class RowCell extends ListCell<List<Product>> {
+        private final HBox box = new HBox(HORIZONTAL_GAP);
+        private final List<ProductCard> cards = new ArrayList<>();
+
+        RowCell() {
+            box.setAlignment(Pos.TOP_LEFT);
+            box.setPadding(new Insets(0, 0, VERTICAL_GAP, 0));
+            getStyleClass().add("products-row");
+        }
+
+        @Override
+        protected void updateItem(List<Product> row, boolean empty) {
+            super.updateItem(row, empty);
+            if (empty || row == null) {
+                for (ProductCard card : cards) {
+                    card.clear();
+                }
+                setGraphic(null);
+                return;
+            }
+            while (cards.size() < row.size()) {
+                cards.add(new ProductCard(imageLoader, placeholder, onAddToCart, onOpen));
+            }
+            for (int i = 0; i < row.size(); i++) {
+                cards.get(i).show(row.get(i));
+            }
+            for (int i = row.size(); i < cards.size(); i++) {
+                cards.get(i).clear();
+            }
+            box.getChildren().setAll(cards.subList(0, row.size()));
+            setGraphic(box);
+            if (getIndex() >= rows.size() - NEAR_END_ROWS) {
+                onNearEnd.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package shop.fx.shop;
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+import java.io.ByteArrayInputStream;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+// Fetches and decodes product images on demand, off the JavaFX Application Thread.
+// Requests for an image that is already loading share that load, and a load nobody waits for any more
+// is cancelled, so cards scrolled past do not keep the decoders busy. Call from the FX thread.
+class ProductImageLoader {
+    // Images decoded at the same time; decoding is CPU bound, so more would only compete with the UI
+    private static final int MAX_CONCURRENT_DECODES = 2;
+
+    private record Key(int productId, Thumbnails.Size size) {
+    }
+
+    // One background load and the requests waiting for it; FX thread only
+    private static final class SharedLoad {
+        private final List<CompletableFuture<Image>> requests = new ArrayList<>();
+        private Future<?> task;
+    }
+
+    private final DatabaseManager db;
+    private final ExecutorService executor;
+    private final ImageCache cache = new ImageCache();
+    // Fair, so images load in the order the cards asked for them
+    private final Semaphore decodePermits = new Semaphore(MAX_CONCURRENT_DECODES, true);
+    // Loads running or queued; FX thread only
+    private final Map<Key, SharedLoad> loading = new HashMap<>();
+
+    ProductImageLoader(DatabaseManager db, ExecutorService executor) {
+        this.db = db;
+        this.executor = executor;
+    }
+
+    // Load the image of a product at a display size and hand it to onLoaded on the FX thread.
+    // Cached images are handed over immediately, before load returns.
+    // onLoaded receives null when the product has no image or it cannot be read or decoded.
+    // Cancel the returned future when the image is no longer wanted; onLoaded is then not called.
+    Future<Image> load(Product product, Thumbnails.Size size, Consumer<Image> onLoaded) {
+        if (!product.hasImage()) {
+            onLoaded.accept(null);
+            return CompletableFuture.completedFuture(null);
+        }
+        Image cached = cache.get(product.getId(), size);
+        if (cached != null) {
+            onLoaded.accept(cached);
+            return CompletableFuture.completedFuture(cached);
+        }
+        Key key = new Key(product.getId(), size);
+        SharedLoad load = loading.get(key);
+        if (load == null) {
+            SharedLoad started = new SharedLoad();
+            started.task = executor.submit(() -> run(key, started, product));
+            load = started;
+            loading.put(key, load);
+        }
+        SharedLoad shared = load;
+        CompletableFuture<Image> request = new CompletableFuture<>();
+        shared.requests.add(request);
+        request.whenComplete((_, _) -> {
+            if (request.isCancelled()) {
+                release(key, shared, request);
+            }
+        });
+        request.thenAccept(onLoaded);
+        return request;
+    }
+
+    // Forget a cancelled request, and stop the load once no request is left
+    private void release(Key key, SharedLoad load, CompletableFuture<Image> request) {
+        load.requests.remove(request);
+        if (load.requests.isEmpty() && loading.remove(key, load)) {
+            load.task.cancel(true);
+        }
+    }
+
+    private void run(Key key, SharedLoad load, Product product) {
+        Image image;
+        try {
+            decodePermits.acquire();
+        } catch (InterruptedException e) {
+            return; // Cancelled or shutting down
+        }
+        try {
+            image = decode(product, key.size());
+        } finally {
+            decodePermits.release();
+        }
+        if (image != null) {
+            cache.put(key.productId(), key.size(), image);
+        }
+        Platform.runLater(() -> {
+            loading.remove(key, load);
+            for (CompletableFuture<Image> request : List.copyOf(load.requests)) {
+                request.complete(image);
+            }
+        });
+    }
+
+    // Forget the cached images of a product that was removed
+    void invalidate(int productId) {
+        cache.invalidate(productId);
+    }
+
+    ImageCache.Stats cacheStats() {
+        return cache.stats();
+    }
+
+    // Prefer the stored thumbnail; until the backfill reaches a product, scale the original while decoding it
+    private Image decode(Product product, Thumbnails.Size size) {
+        try {
+            byte[] bytes = product.getImage();
+            if (bytes == null) {
+                bytes = db.getProductThumbnail(product.getId(), size);
+            }
+            if (bytes == null) {
+                bytes = db.getProductImage(product.getId());
+            }
+            if (bytes == null) {
+                return null;
+            }
+            Image image = new Image(new ByteArrayInputStream(bytes), size.width, size.height, true, true);
+            return image.isError() ? null : image;
+        } catch (SQLException e) {
+            if (!Thread.currentThread().isInterrupted()) { // Otherwise the load was cancelled
+                System.err.println("Error loading image for product " + product.getId() + ": " + e.getMessage());
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package shop.fx.shop;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Bulk product import from a supplier feed plus a directory of images.
+// The feed is CSV with a header row, or JSON Lines with one flat object per line; both use the fields
+// name, description, price, seller and image (a file name inside the image directory, may be empty).
+// Images of the next chunk are read on a thread pool while the current chunk is written in one transaction.
+class ProductImporter {
+    private static final int READER_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private final DatabaseManager db;
+    private final Path imageDir;
+
+    ProductImporter(DatabaseManager db, Path imageDir) {
+        this.db = db;
+        this.imageDir = imageDir;
+    }
+
+    // Usage: ProductImporter <feed.csv|feed.jsonl> <image directory>
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: ProductImporter <feed.csv|feed.jsonl> <image directory>");
+            System.exit(2);
+        }
+        DatabaseManager db = new DatabaseManager();
+        try {
+            long start = System.nanoTime();
+            int count = new ProductImporter(db, Path.of(args[1])).importFeed(Path.of(args[0]));
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Imported %d products in %.2f s (%.0f products/s)%n", count, seconds, count / seconds);
+        } catch (IOException | SQLException e) {
+            System.err.println("Import failed: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            try {
+                db.closeConnection();
+            } catch (SQLException e) {
+                System.err.println("Error closing connection: " + e.getMessage());
+            }
+        }
+    }
+
+    // Import every row of the feed and return the number of products inserted
+    int importFeed(Path feed) throws IOException, SQLException {
+        boolean jsonLines = feed.getFileName().toString().toLowerCase().endsWith(".jsonl");
+        ExecutorService readers = Executors.newFixedThreadPool(READER_THREADS);
+        try (BufferedReader in = Files.newBufferedReader(feed, StandardCharsets.UTF_8)) {
+            List<String> header = jsonLines ? null : parseCsvLine(in.readLine());
+            int imported = 0;
+            List<Future<Product>> pending = null;
+            List<Future<Product>> chunk = new ArrayList<>(DatabaseManager.IMPORT_CHUNK_SIZE);
+            String line;
+            int lineNumber = jsonLines ? 0 : 1;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) continue;
+                Map<String, String> fields = jsonLines ? parseJsonLine(line, lineNumber) : toFields(header, parseCsvLine(line));
+                chunk.add(readers.submit(() -> toProduct(fields)));
+                if (chunk.size() == DatabaseManager.IMPORT_CHUNK_SIZE) {
+                    // Write the previous chunk while the images of this one are being read
+                    if (pending != null) imported += write(pending);
+                    pending = chunk;
+                    chunk = new ArrayList<>(DatabaseManager.IMPORT_CHUNK_SIZE);
+                }
+            }
+            if (pending != null) imported += write(pending);
+            imported += write(chunk);
+            return imported;
+        } finally {
+            readers.shutdownNow();
+        }
+    }
+
+    private int write(List<Future<Product>> chunk) throws IOException, SQLException {
+        List<Product> products = new ArrayList<>(chunk.size());
+        for (Future<Product> future : chunk) {
+            try {
+                products.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Import interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause().getMessage(), e.getCause());
+            }
+        }
+        return db.importProducts(products);
+    }
+
+    // Runs on the reader pool: validates the fields and reads the image file
+    private Product toProduct(Map<String, String> fields) throws IOException {
+        String name = fields.get("name");
+        String seller = fields.get("seller");
+        if (name == null || name.isEmpty() || seller == null || seller.isEmpty()) {
+            throw new IOException("Feed row without name or seller: " + fields);
+        }
+        double price;
+        try {
+            price = Double.parseDouble(String.valueOf(fields.get("price")));
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid price for " + name + ": " + fields.get("price"));
+        }
+        String description = fields.get("description");
+        String imageName = fields.get("image");
+        byte[] image = imageName == null || imageName.isEmpty() ? null : Files.readAllBytes(imageDir.resolve(imageName));
+        return new Product(0, name, description == null || description.isEmpty() ? null : description,
+                price, seller, image, image != null);
+    }
+
+    private static Map<String, String> toFields(List<String> header, List<String> values) {
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < header.size() && i < values.size(); i++) {
+            fields.put(header.get(i).trim().toLowerCase(), values.get(i));
+        }
+        return fields;
+    }
+
+    // Split one CSV record; fields may be double-quoted, with "" standing for a quote
+    static List<String> parseCsvLine(String line) throws IOException {
+        if (line == null) {
+            throw new IOException("Feed is empty");
+        }
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IOException("Unterminated quote in CSV line: " + line);
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    // Parse one JSON object with string, number, boolean or null values; nested values are not supported
+    static Map<String, String> parseJsonLine(String line, int lineNumber) throws IOException {
+        JsonCursor cursor = new JsonCursor(line, lineNumber);
+        Map<String, String> fields = new HashMap<>();
+        cursor.expect('{');
+        if (!cursor.consume('}')) {
+            do {
+                String key = cursor.string();
+                cursor.expect(':');
+                fields.put(key.toLowerCase(), cursor.scalar());
+            } while (cursor.consume(','));
+            cursor.expect('}');
+        }
+        return fields;
+    }
+
+    private static class JsonCursor {
+        private final String text;
+        private final int lineNumber;
+        private int pos;
+
+        JsonCursor(String text, int lineNumber) {
+            this.text = text;
+            this.lineNumber = lineNumber;
+        }
+
+        void expect(char c) throws IOException {
+            if (!consume(c)) throw error("expected '" + c + "'");
+        }
+
+        boolean consume(char c) {
+            skipWhitespace();
+            if (pos < text.length() && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        String scalar() throws IOException {
+            skipWhitespace();
+            if (pos < text.length() && text.charAt(pos) == '"') {
+                return string();
+            }
+            int start = pos;
+            while (pos < text.length() && ",}".indexOf(text.charAt(pos)) < 0 && !Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+            String literal = text.substring(start, pos);
+            if (literal.isEmpty() || literal.startsWith("{") || literal.startsWith("[")) {
+                throw error("unsupported value");
+            }
+            return literal.equals("null") ? null : literal;
+        }
+
+        String string() throws IOException {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (pos < text.length()) {
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (pos >= text.length()) break;
+                char escaped = text.charAt(pos++);
+                switch (escaped) {
+                    case 'n' -> value.append('\n');
+                    case 't' -> value.append('\t');
+                    case 'r' -> value.append('\r');
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'u' -> {
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                            throw error("bad unicode escape");
+                        }
+                        pos += 4;
+                    }
+                    default -> value.append(escaped);
+                }
+            }
+            throw error("unterminated string");
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+        }
+
+        private IOException error(String message) {
+            return new IOException("Line " + lineNumber + ", column " + (pos + 1) + ": " + message);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package shop.fx.shop;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Lets another thread cancel a running query. SQLite aborts the statement (sqlite3_interrupt)
+// and the query method throws; callers then check isCancelled() to tell a cancel from a failure.
+class QueryHandle {
+    private Statement statement;
+    private boolean cancelled;
+
+    // Called by DatabaseManager right before executing; fails if the query was cancelled before it started
+    synchronized void attach(Statement statement) throws SQLException {
+        if (cancelled) {
+            throw new SQLException("Query cancelled");
+        }
+        this.statement = statement;
+    }
+
+    // Called by DatabaseManager before the connection goes back to the pool, so cancel() cannot reach the next user
+    synchronized void detach() {
+        statement = null;
+    }
+
+    synchronized void cancel() {
+        cancelled = true;
+        if (statement != null) {
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                System.err.println("Error cancelling query: " + e.getMessage());
+            }
+        }
+    }
+
+    synchronized boolean isCancelled() {
+        return cancelled;
+    }
+}
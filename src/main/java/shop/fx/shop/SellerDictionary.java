@@ -0,0 +1,61 @@
+package shop.fx.shop;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// In-memory copy of the sellers table. Product rows store a seller id; every Product of a seller
+// shares the one name String held here instead of carrying its own copy.
+class SellerDictionary {
+    private final Map<Integer, String> names = new ConcurrentHashMap<>();
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+    // Name of a seller id. Unknown ids (sellers added since the last load) reload the table through conn.
+    String name(CachedConnection conn, int id) throws SQLException {
+        String name = names.get(id);
+        if (name == null) {
+            load(conn);
+            name = names.get(id);
+            if (name == null) {
+                throw new SQLException("Unknown seller id " + id);
+            }
+        }
+        return name;
+    }
+
+    // Id of a seller name, creating the seller if it is new. conn must be the writer, usually inside the
+    // transaction that stores the products using the id. Ids read here are not remembered, since that
+    // transaction may still roll back; the next load picks up committed sellers.
+    int id(CachedConnection conn, String name) throws SQLException {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        PreparedStatement insert = conn.prepare("INSERT INTO sellers (name) VALUES (?) ON CONFLICT (name) DO NOTHING");
+        insert.setString(1, name);
+        insert.executeUpdate();
+        PreparedStatement select = conn.prepare("SELECT id FROM sellers WHERE name = ?");
+        select.setString(1, name);
+        try (ResultSet rs = select.executeQuery()) {
+            if (!rs.next()) {
+                throw new SQLException("Seller was not stored: " + name);
+            }
+            return rs.getInt(1);
+        }
+    }
+
+    // Read every seller; names already held are kept, so existing products keep sharing them
+    void load(CachedConnection conn) throws SQLException {
+        try (ResultSet rs = conn.prepare("SELECT id, name FROM sellers").executeQuery()) {
+            while (rs.next()) {
+                add(rs.getInt(1), rs.getString(2));
+            }
+        }
+    }
+
+    private void add(int id, String name) {
+        String shared = names.putIfAbsent(id, name);
+        ids.putIfAbsent(shared != null ? shared : name, id);
+    }
+}
@@ -0,0 +1,47 @@
+package shop.fx.shop;
+import java.util.EnumSet;
+import java.util.Set;
+
+// The signed-in user and what they may do, built once by DatabaseManager.authenticate.
+// Permission checks are answered from memory. DatabaseManager refreshes the session when
+// updateUser changes the user and ends it when removeUser deletes them.
+class Session {
+    static final String ADMIN_ROLE = "Admin";
+
+    enum Permission {
+        ADD_PRODUCT,
+        REMOVE_PRODUCT,
+        VIEW_DIAGNOSTICS
+    }
+
+    private volatile User user;
+    private volatile Set<Permission> permissions;
+    private volatile boolean active = true;
+
+    Session(User user) {
+        update(user);
+    }
+
+    User user() {
+        return user;
+    }
+
+    // False for every permission once the session has ended
+    boolean can(Permission permission) {
+        return active && permissions.contains(permission);
+    }
+
+    // Take over the user's new details and role
+    void update(User user) {
+        this.permissions = permissionsOf(user.getRole());
+        this.user = user;
+    }
+
+    void end() {
+        active = false;
+    }
+
+    private static Set<Permission> permissionsOf(String role) {
+        return ADMIN_ROLE.equals(role) ? Set.copyOf(EnumSet.allOf(Permission.class)) : Set.of();
+    }
+}
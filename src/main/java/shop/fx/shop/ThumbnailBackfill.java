@@ -0,0 +1,52 @@
+package shop.fx.shop;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+// Background job that generates thumbnails for products stored before thumbnails existed
+class ThumbnailBackfill implements Runnable {
+    private static final int BATCH_SIZE = 50;
+    private static final Logger log = Logger.getLogger(ThumbnailBackfill.class.getName());
+
+    private final DatabaseManager db;
+
+    ThumbnailBackfill(DatabaseManager db) {
+        this.db = db;
+    }
+
+    // Start the backfill on executor; cancel the returned future (interrupting) to stop it between products
+    static Future<?> start(DatabaseManager db, ExecutorService executor) {
+        return executor.submit(new ThumbnailBackfill(db));
+    }
+
+    @Override
+    public void run() {
+        int cursor = 0;
+        int generated = 0;
+        try {
+            List<Integer> ids;
+            while (!(ids = db.getProductsWithoutThumbnails(cursor, BATCH_SIZE)).isEmpty()) {
+                for (int id : ids) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    // Images ImageIO cannot decode get no thumbnails; the cursor moves past them
+                    Map<Thumbnails.Size, byte[]> thumbnails = Thumbnails.createAll(db.getProductImage(id));
+                    if (!thumbnails.isEmpty()) {
+                        db.saveThumbnails(id, thumbnails);
+                        generated++;
+                    }
+                    cursor = id;
+                }
+            }
+            if (generated > 0) {
+                log.info("Thumbnail backfill finished: " + generated + " products");
+            }
+        } catch (SQLException e) {
+            log.warning("Thumbnail backfill stopped: " + e.getMessage());
+        }
+    }
+}
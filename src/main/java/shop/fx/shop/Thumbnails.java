@@ -0,0 +1,84 @@
+package shop.fx.shop;
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+// Fixed-size product thumbnails, generated once when a product is stored so the UI never decodes originals
+class Thumbnails {
+    // Sizes the UI displays product images at
+    enum Size {
+        GRID(250, 180),
+        DETAIL(600, 300);
+
+        final int width;
+        final int height;
+
+        Size(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private Thumbnails() {
+    }
+
+    // Create every thumbnail size for an original image. Returns an empty map if the image cannot be decoded.
+    static Map<Size, byte[]> createAll(byte[] original) {
+        Map<Size, byte[]> thumbnails = new EnumMap<>(Size.class);
+        if (original == null) {
+            return thumbnails;
+        }
+        try {
+            BufferedImage source = ImageIO.read(new ByteArrayInputStream(original));
+            if (source == null) {
+                return thumbnails; // Format not supported by ImageIO
+            }
+            for (Size size : Size.values()) {
+                thumbnails.put(size, encode(scale(source, size)));
+            }
+        } catch (IOException e) {
+            System.err.println("Error creating thumbnails: " + e.getMessage());
+            thumbnails.clear();
+        }
+        return thumbnails;
+    }
+
+    // Scale so the image covers the target box (the views crop or fit it), never enlarging it.
+    // Large reductions go through repeated halving, which keeps bilinear scaling sharp.
+    private static BufferedImage scale(BufferedImage source, Size size) {
+        double factor = Math.min(1.0, Math.max((double) size.width / source.getWidth(), (double) size.height / source.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * factor));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * factor));
+        boolean alpha = source.getColorModel().hasAlpha();
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage step = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = step.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(current, 0, 0, width, height, null);
+            g.dispose();
+            current = step;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    // JPEG for opaque images, PNG when transparency has to be kept
+    private static byte[] encode(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        String format = image.getColorModel().hasAlpha() ? "png" : "jpg";
+        if (!ImageIO.write(image, format, out)) {
+            throw new IOException("No ImageIO writer for " + format);
+        }
+        return out.toByteArray();
+    }
+}
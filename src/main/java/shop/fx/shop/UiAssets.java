@@ -0,0 +1,99 @@
+package shop.fx.shop;
+import javafx.application.Platform;
+import javafx.geometry.VPos;
+import javafx.scene.Scene;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+// Shared UI assets: the window icon is decoded once, "No Image" placeholders are rendered once per size,
+// and stylesheet URLs are resolved once, instead of every Stage doing it again.
+final class UiAssets {
+    private static final String ICON = "store.png";
+    private static final String[] STYLESHEETS = {"styles.css", "login-styles.css", "add-product-styles.css", "cart-styles.css"};
+
+    private static volatile Image appIcon;
+    private static final Map<String, Optional<String>> stylesheets = new ConcurrentHashMap<>();
+    private static final Map<String, Image> placeholders = new ConcurrentHashMap<>();
+
+    private UiAssets() {
+    }
+
+    // Decode the icon and resolve the stylesheets on executor, then render the
+    // placeholders on the FX thread, so the first windows after login find everything ready
+    static void warmUp(Executor executor) {
+        executor.execute(() -> {
+            appIcon();
+            for (String name : STYLESHEETS) {
+                stylesheet(name);
+            }
+            Platform.runLater(() -> {
+                for (Thumbnails.Size size : Thumbnails.Size.values()) {
+                    placeholder(size.width, size.height);
+                }
+            });
+        });
+    }
+
+    static Image appIcon() {
+        Image icon = appIcon;
+        if (icon == null) {
+            synchronized (UiAssets.class) {
+                if (appIcon == null) {
+                    InputStream in = Objects.requireNonNull(UiAssets.class.getResourceAsStream(ICON));
+                    appIcon = new Image(in);
+                }
+                icon = appIcon;
+            }
+        }
+        return icon;
+    }
+
+    // External form of a stylesheet next to this class, or null if it is missing (warned about once)
+    static String stylesheet(String name) {
+        return stylesheets.computeIfAbsent(name, _ -> {
+            URL url = UiAssets.class.getResource(name);
+            if (url == null) {
+                System.err.println("Warning: " + name + " not found");
+            }
+            return Optional.ofNullable(url).map(URL::toExternalForm);
+        }).orElse(null);
+    }
+
+    // Add a stylesheet to a scene if it exists
+    static void addStylesheet(Scene scene, String name) {
+        String url = stylesheet(name);
+        if (url != null) {
+            scene.getStylesheets().add(url);
+        }
+    }
+
+    // "No Image" placeholder of the given size. Must be called on the FX thread the first time a size is used.
+    static Image placeholder(double width, double height) {
+        return placeholders.computeIfAbsent((int) width + "x" + (int) height, _ -> renderPlaceholder(width, height));
+    }
+
+    private static Image renderPlaceholder(double width, double height) {
+        Canvas canvas = new Canvas(width, height);
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        g.setFill(Color.web("#E0E0E0"));
+        g.fillRect(0, 0, width, height);
+        g.setFill(Color.web("#999999"));
+        g.setFont(Font.font("Segoe UI", 20));
+        g.setTextAlign(TextAlignment.CENTER);
+        g.setTextBaseline(VPos.CENTER);
+        g.fillText("No Image", width / 2, height / 2);
+        return canvas.snapshot(null, new WritableImage((int) width, (int) height));
+    }
+}
@@ -4,27 +4,20 @@ import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.image.Image;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-
 public class UserProfileStage extends Stage {
-    private final DatabaseManager db;
+    private final AsyncDatabase db;
     private final User user;
 
-    public UserProfileStage(DatabaseManager db, User user) {
+    public UserProfileStage(AsyncDatabase db, User user) {
         this.db = db;
         this.user = user;
         setTitle("User Profile");
         setResizable(false);
-        this.getIcons().add(new Image(getClass().getResourceAsStream("store.png")));
+        this.getIcons().add(UiAssets.appIcon());
 
         VBox root = new VBox(15);
         root.setPadding(new Insets(20));
@@ -61,20 +54,20 @@ public class UserProfileStage extends Stage {
         PasswordField newPasswordField = new PasswordField();
         newPasswordField.getStyleClass().add("text-field");
 
-        // Check if user has default password
-        try {
-            if (hasDefaultPassword()) {
+        // Check if user has default password; the warning follows once the database answers
+        db.hasDefaultPassword(user.getId()).whenComplete((isDefault, failure) -> {
+            if (failure != null) {
+                showAlert(Alert.AlertType.ERROR, "Database Error", AsyncDatabase.cause(failure).getMessage());
+            } else if (isDefault) {
                 showAlert(Alert.AlertType.WARNING, "Security Warning",
                         "Your account has a temporary password. Please set a new password.");
                 newPasswordField.setPromptText("Set a new password (required)");
             }
-        } catch (SQLException e) {
-            showAlert(Alert.AlertType.ERROR, "Database Error", e.getMessage());
-        }
+        });
 
         Button saveButton = new Button("Save Changes");
         saveButton.getStyleClass().add("action-button");
-        saveButton.setOnAction(e -> handleSave(newPasswordField.getText()));
+        saveButton.setOnAction(e -> handleSave(saveButton, newPasswordField.getText()));
 
         Button deleteButton = new Button("Delete Profile");
         deleteButton.getStyleClass().add("delete-button");
@@ -83,35 +76,36 @@ public class UserProfileStage extends Stage {
         root.getChildren().addAll(titleLabel, grid, newPasswordField, saveButton, deleteButton);
 
         Scene scene = new Scene(root, 350, 350);
-        String cssPath = getClass().getResource("login-styles.css") != null ?
-                getClass().getResource("login-styles.css").toExternalForm() : null;
-        if (cssPath != null) {
-            scene.getStylesheets().add(cssPath);
-        } else {
-            System.err.println("Warning: login-styles.css not found");
-        }
+        UiAssets.addStylesheet(scene, "login-styles.css");
         setScene(scene);
     }
 
-    private void handleSave(String newPassword) {
-        try {
-            // If user has default password, require a new one
-            if (hasDefaultPassword() && newPassword.isEmpty()) {
-                showAlert(Alert.AlertType.ERROR, "Error", "You must set a new password.");
-                return;
-            }
-
-            // Only update password if provided
-            if (!newPassword.isEmpty()) {
-                db.updateUser(user.getId(), user.getUsername(), user.getEmail(), "User", newPassword);
+    private void handleSave(Button saveButton, String newPassword) {
+        saveButton.setDisable(true);
+        // Only update password if provided
+        if (!newPassword.isEmpty()) {
+            db.updateUser(user.getId(), user.getUsername(), user.getEmail(), "User", newPassword).whenComplete((_, failure) -> {
+                saveButton.setDisable(false);
+                if (failure != null) {
+                    showAlert(Alert.AlertType.ERROR, "Database Error", AsyncDatabase.cause(failure).getMessage());
+                    return;
+                }
                 showAlert(Alert.AlertType.INFORMATION, "Success", "Password updated successfully!");
                 close();
+            });
+            return;
+        }
+        // If user has default password, require a new one
+        db.hasDefaultPassword(user.getId()).whenComplete((isDefault, failure) -> {
+            saveButton.setDisable(false);
+            if (failure != null) {
+                showAlert(Alert.AlertType.ERROR, "Database Error", AsyncDatabase.cause(failure).getMessage());
+            } else if (isDefault) {
+                showAlert(Alert.AlertType.ERROR, "Error", "You must set a new password.");
             } else {
                 showAlert(Alert.AlertType.INFORMATION, "Info", "No changes to save.");
             }
-        } catch (SQLException e) {
-            showAlert(Alert.AlertType.ERROR, "Database Error", e.getMessage());
-        }
+        });
     }
 
     private void handleDelete() {
@@ -121,62 +115,32 @@ public class UserProfileStage extends Stage {
         confirmAlert.setContentText("This action cannot be undone.");
         confirmAlert.showAndWait().ifPresent(response -> {
             if (response == ButtonType.OK) {
-                try {
-                    db.removeUser(user.getId());
+                db.removeUser(user.getId()).whenComplete((_, failure) -> {
+                    if (failure != null) {
+                        showAlert(Alert.AlertType.ERROR, "Database Error", "Failed to delete profile: " + AsyncDatabase.cause(failure).getMessage());
+                        return;
+                    }
                     showAlert(Alert.AlertType.INFORMATION, "Success", "Profile deleted successfully.");
                     close();
 
-                    // Reset loggedInUser and show login stage
+                    // Reset the session and show login stage
                     Stage primaryStage = (Stage) getScene().getWindow();
                     MarketplaceApp app = (MarketplaceApp) primaryStage.getUserData();
                     if (app != null) {
-                        app.setLoggedInUser(null);
+                        app.setSession(null);
                     }
 
-                    new LoginStage(db, newUser -> {
+                    new LoginStage(db, newSession -> {
                         if (app != null) {
-                            app.setLoggedInUser(newUser);
+                            app.setSession(newSession);
                             primaryStage.setScene(app.createScene(app.createRootPane()));
                         }
                     }).show();
-                } catch (SQLException e) {
-                    showAlert(Alert.AlertType.ERROR, "Database Error", "Failed to delete profile: " + e.getMessage());
-                }
+                });
             }
         });
     }
 
-    private boolean hasDefaultPassword() throws SQLException {
-        String sql = "SELECT password FROM users WHERE id = ?";
-        try (PreparedStatement pstmt = db.conn.prepareStatement(sql)) {
-            pstmt.setInt(1, user.getId());
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    String storedPassword = rs.getString("password");
-                    String defaultPassword = hashPassword("temp");
-                    return storedPassword.equals(defaultPassword);
-                }
-            }
-        }
-        throw new SQLException("User not found");
-    }
-
-    private String hashPassword(String password) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(password.getBytes());
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hash) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) hexString.append('0');
-                hexString.append(hex);
-            }
-            return hexString.toString();
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("Password hashing failed", e);
-        }
-    }
-
     private void showAlert(Alert.AlertType type, String title, String message) {
         Alert alert = new Alert(type);
         alert.setTitle(title);